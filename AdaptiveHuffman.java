@@ -0,0 +1,347 @@
+import java.io.*;
+import java.nio.file.*;
+
+/*
+ * ------------------ ADAPTIVE (ONE-PASS) HUFFMAN : FGK ------------------
+ * HuffmanEncoding needs all frequencies before it can build the tree, so it
+ * has to see the whole block first. The adaptive coder starts from an empty
+ * tree and updates it after every symbol. Encoder and decoder perform the
+ * same updates, so they stay in sync with no header at all.
+ *
+ *   NYT ("not yet transmitted") leaf : weight 0, stands for every unseen
+ *                                      symbol. A new symbol is sent as
+ *                                      code(NYT) + its 9-bit value, then NYT
+ *                                      splits into (new NYT, new leaf).
+ *   Sibling property                 : nodes numbered so weights never
+ *                                      decrease with the number and
+ *                                      siblings are neighbours. Before a
+ *                                      weight goes up, the node is swapped
+ *                                      with the highest-numbered node of the
+ *                                      same weight, which keeps the tree a
+ *                                      Huffman tree.
+ *
+ * The tree lives in parallel int arrays indexed by node number (no Node
+ * objects); the root is the highest slot. Symbol 256 marks end of stream.
+ *
+ * When the root weight reaches RESCALE_LIMIT all weights are halved and the
+ * tree is rebuilt, which keeps the tree shallow (< 32 bits per code), keeps
+ * each update bounded and lets the model follow drifting statistics.
+ *
+ * Time:  O(code length) per symbol (+ O(k log k) rebuild every 2^15 symbols)
+ * Space: O(alphabet), no matter how long the stream is
+ */
+public class AdaptiveHuffman {
+
+    static final int EOF = 256;
+    static final int SYMBOLS = 257;                 // 256 bytes + EOF
+    static final int NODES = 2 * (SYMBOLS + 1) - 1; // every symbol and NYT as leaves
+    static final int ROOT = NODES - 1;
+    static final int RESCALE_LIMIT = 1 << 16;
+
+    static final int NONE = -1;
+    static final int INTERNAL = -1;     // sym[] of an internal node
+    static final int NYT = -2;          // sym[] of the NYT leaf
+
+    private final int[] weight = new int[NODES];
+    private final int[] parent = new int[NODES];
+    private final int[] left = new int[NODES];
+    private final int[] right = new int[NODES];
+    private final int[] sym = new int[NODES];
+    private final int[] leaf = new int[SYMBOLS];    // symbol -> node, or NONE if unseen
+    private int nyt;
+
+    // scratch for rescale()
+    private final long[] keys = new long[SYMBOLS + 1];
+    private final int[] itemWeight = new int[NODES];
+    private final int[] itemLeft = new int[NODES];
+    private final int[] itemRight = new int[NODES];
+    private final int[] order = new int[NODES];
+    private final int[] slotOf = new int[NODES];
+
+    public AdaptiveHuffman() {
+        java.util.Arrays.fill(leaf, NONE);
+        nyt = ROOT;
+        sym[ROOT] = NYT;
+        parent[ROOT] = NONE;
+        left[ROOT] = NONE;
+        right[ROOT] = NONE;
+    }
+
+    // ------------------------------------------------------------ encoding
+
+    void encode(int s, HuffmanEncoding.BitWriter bw) {
+        if (leaf[s] != NONE) {
+            writePath(leaf[s], bw);
+        } else {
+            writePath(nyt, bw);
+            bw.writeBits(s, 9);
+        }
+        update(s);
+    }
+
+    // Code of a node = left/right turns from the root, collected bottom-up
+    private void writePath(int node, HuffmanEncoding.BitWriter bw) {
+        long code = 0;
+        int len = 0;
+        for (int n = node; n != ROOT; n = parent[n]) {
+            if (right[parent[n]] == n)
+                code |= 1L << len;
+            len++;
+        }
+        if (len > 32) {
+            bw.writeBits((int) (code >>> 32), len - 32);
+            len = 32;
+        }
+        bw.writeBits((int) code, len);
+    }
+
+    // ------------------------------------------------------------ decoding
+
+    int decode(BitInput in) throws IOException {
+        int n = ROOT;
+        while (sym[n] == INTERNAL)
+            n = in.readBit() == 0 ? left[n] : right[n];
+        int s;
+        if (n == nyt) {
+            s = in.readBits(9);
+            if (s >= SYMBOLS || leaf[s] != NONE) throw new IOException("corrupt adaptive Huffman stream");
+        } else {
+            s = sym[n];
+        }
+        update(s);
+        return s;
+    }
+
+    // ------------------------------------------------------------ tree update (FGK)
+
+    void update(int s) {
+        int q;
+        if (leaf[s] == NONE) {
+            // split NYT: it becomes an internal node over (new NYT, new leaf)
+            int old = nyt;
+            int newNyt = old - 2, newLeaf = old - 1;
+            initLeaf(newNyt, NYT, old);
+            initLeaf(newLeaf, s, old);
+            sym[old] = INTERNAL;
+            left[old] = newNyt;
+            right[old] = newLeaf;
+            nyt = newNyt;
+            leaf[s] = newLeaf;
+            q = newLeaf;
+        } else {
+            q = leaf[s];
+        }
+
+        while (q != ROOT) {
+            // highest-numbered node with the same weight (equal weights are contiguous)
+            int leader = q;
+            while (leader < ROOT && weight[leader + 1] == weight[q])
+                leader++;
+            if (leader != q && leader != parent[q]) {
+                swap(q, leader);
+                q = leader;
+            }
+            weight[q]++;
+            q = parent[q];
+        }
+        weight[ROOT]++;
+
+        if (weight[ROOT] >= RESCALE_LIMIT)
+            rescale();
+    }
+
+    private void initLeaf(int slot, int s, int p) {
+        weight[slot] = 0;
+        sym[slot] = s;
+        parent[slot] = p;
+        left[slot] = NONE;
+        right[slot] = NONE;
+    }
+
+    // Exchange the subtrees hanging at slots a and b (same weight, neither is the other's ancestor)
+    private void swap(int a, int b) {
+        int t = sym[a]; sym[a] = sym[b]; sym[b] = t;
+        t = left[a]; left[a] = left[b]; left[b] = t;
+        t = right[a]; right[a] = right[b]; right[b] = t;
+        relink(a);
+        relink(b);
+    }
+
+    private void relink(int slot) {
+        if (sym[slot] == INTERNAL) {
+            parent[left[slot]] = slot;
+            parent[right[slot]] = slot;
+        } else if (sym[slot] == NYT) {
+            nyt = slot;
+        } else {
+            leaf[sym[slot]] = slot;
+        }
+    }
+
+    /*
+     * Halve every leaf weight (keeping it >= 1) and rebuild the tree with the
+     * two-queue Huffman merge. Numbering nodes in the order the merge removes
+     * them gives non-decreasing weights with siblings side by side, i.e. the
+     * sibling property; NYT (weight 0) is removed first and gets the lowest slot.
+     */
+    private void rescale() {
+        int m = 0;
+        for (int s = 0; s < SYMBOLS; s++) {
+            if (leaf[s] != NONE)
+                keys[m++] = ((long) ((weight[leaf[s]] + 1) >>> 1) << 32) | s;
+        }
+        keys[m++] = SYMBOLS;        // NYT, weight 0
+        java.util.Arrays.sort(keys, 0, m);
+        for (int i = 0; i < m; i++)
+            itemWeight[i] = (int) (keys[i] >>> 32);
+
+        // items 0..m-1 are leaves, m..2m-2 merged nodes
+        int leafHead = 0, nodeHead = m, count = 0;
+        for (int next = m; next < 2 * m - 1; next++) {
+            int a = (leafHead < m && (nodeHead >= next || itemWeight[leafHead] <= itemWeight[nodeHead])) ? leafHead++ : nodeHead++;
+            order[count++] = a;
+            int b = (leafHead < m && (nodeHead >= next || itemWeight[leafHead] <= itemWeight[nodeHead])) ? leafHead++ : nodeHead++;
+            order[count++] = b;
+            itemWeight[next] = itemWeight[a] + itemWeight[b];
+            itemLeft[next] = a;
+            itemRight[next] = b;
+        }
+        order[count++] = 2 * m - 2;     // root
+
+        int base = NODES - count;
+        for (int p = 0; p < count; p++)
+            slotOf[order[p]] = base + p;
+        for (int p = 0; p < count; p++) {
+            int item = order[p], slot = base + p;
+            weight[slot] = itemWeight[item];
+            if (item < m) {
+                int s = (int) keys[item];
+                left[slot] = NONE;
+                right[slot] = NONE;
+                if (s == SYMBOLS) {
+                    sym[slot] = NYT;
+                    nyt = slot;
+                } else {
+                    sym[slot] = s;
+                    leaf[s] = slot;
+                }
+            } else {
+                sym[slot] = INTERNAL;
+                left[slot] = slotOf[itemLeft[item]];
+                right[slot] = slotOf[itemRight[item]];
+                parent[left[slot]] = slot;
+                parent[right[slot]] = slot;
+            }
+        }
+        parent[ROOT] = NONE;
+    }
+
+    // ------------------------------------------------------------ streams
+
+    // Bits MSB first from a stream, one byte at a time
+    static final class BitInput {
+        private final InputStream in;
+        private int cur, left;
+
+        BitInput(InputStream in) {
+            this.in = in;
+        }
+
+        int readBit() throws IOException {
+            if (left == 0) {
+                cur = in.read();
+                if (cur < 0) throw new EOFException("truncated adaptive Huffman stream");
+                left = 8;
+            }
+            left--;
+            return (cur >>> left) & 1;
+        }
+
+        int readBits(int count) throws IOException {
+            int v = 0;
+            for (int i = 0; i < count; i++)
+                v = (v << 1) | readBit();
+            return v;
+        }
+    }
+
+    // One pass, no header: bytes are coded as they arrive
+    public static void compress(InputStream in, OutputStream out) throws IOException {
+        InputStream bin = new BufferedInputStream(in, 1 << 16);
+        AdaptiveHuffman model = new AdaptiveHuffman();
+        HuffmanEncoding.BitWriter bw = new HuffmanEncoding.BitWriter(1 << 16);
+        int b;
+        while ((b = bin.read()) >= 0) {
+            model.encode(b, bw);
+            if (bw.size() >= 1 << 15)
+                bw.drainTo(out);
+        }
+        model.encode(EOF, bw);
+        bw.flushBits();
+        bw.drainTo(out);
+        out.flush();
+    }
+
+    public static void decompress(InputStream in, OutputStream out) throws IOException {
+        BitInput bits = new BitInput(new BufferedInputStream(in, 1 << 16));
+        OutputStream bout = new BufferedOutputStream(out, 1 << 16);
+        AdaptiveHuffman model = new AdaptiveHuffman();
+        int s;
+        while ((s = model.decode(bits)) != EOF)
+            bout.write(s);
+        bout.flush();
+    }
+
+    /*
+     * java AdaptiveHuffman -c <in> <out>  |  -d <in> <out>   ("-" = stdin/stdout)
+     * java AdaptiveHuffman [files...]     benchmark vs the two-pass static coder
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && (args[0].equals("-c") || args[0].equals("-d"))) {
+            try (InputStream in = args[1].equals("-") ? System.in : new FileInputStream(args[1]);
+                 OutputStream out = args[2].equals("-") ? System.out : new FileOutputStream(args[2])) {
+                if (args[0].equals("-c")) compress(in, out);
+                else decompress(in, out);
+            }
+            return;
+        }
+
+        String[] files = args.length > 0 ? args
+                : new String[] {"Churn_Modelling.csv", "sales_data_sample.csv"};
+        for (String file : files) {
+            byte[] data = Files.readAllBytes(Paths.get(file));
+            int reps = Math.max(1, (32 << 20) / Math.max(data.length, 1));
+            double[] stats = new double[6];     // size, compress MB/s, decompress MB/s for static, adaptive
+            for (int mode = 0; mode < 2; mode++) {
+                for (int round = 0; round < 2; round++) {       // round 0 = JIT warm-up
+                    ByteArrayOutputStream packed = new ByteArrayOutputStream();
+                    long t0 = System.nanoTime();
+                    for (int r = 0; r < reps; r++) {
+                        packed.reset();
+                        if (mode == 0) HuffmanEncoding.compress(new ByteArrayInputStream(data), packed);
+                        else compress(new ByteArrayInputStream(data), packed);
+                    }
+                    long t1 = System.nanoTime();
+                    byte[] p = packed.toByteArray();
+                    ByteArrayOutputStream back = new ByteArrayOutputStream(data.length);
+                    for (int r = 0; r < reps; r++) {
+                        back.reset();
+                        if (mode == 0) HuffmanEncoding.decompress(new ByteArrayInputStream(p), back);
+                        else decompress(new ByteArrayInputStream(p), back);
+                    }
+                    long t2 = System.nanoTime();
+                    if (!java.util.Arrays.equals(data, back.toByteArray()))
+                        throw new IllegalStateException("round trip failed");
+                    double mb = (double) data.length * reps / 1e6;
+                    stats[mode * 3] = p.length;
+                    stats[mode * 3 + 1] = mb / ((t1 - t0) / 1e9);
+                    stats[mode * 3 + 2] = mb / ((t2 - t1) / 1e9);
+                }
+            }
+            System.out.printf("%-24s static   %.2f%%  %6.1f / %6.1f MB/s%n", file,
+                    100.0 * stats[0] / data.length, stats[1], stats[2]);
+            System.out.printf("%-24s adaptive %.2f%%  %6.1f / %6.1f MB/s  (compress / decompress)%n", "",
+                    100.0 * stats[3] / data.length, stats[4], stats[5]);
+        }
+    }
+}
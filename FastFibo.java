@@ -0,0 +1,150 @@
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.util.concurrent.ForkJoinTask;
+
+/*
+ * ------------------ FAST DOUBLING FIBONACCI (ARBITRARY PRECISION) ------------------
+ * Fibo.Reccfibo is O(2^n) and both Fibo methods return int, which overflows
+ * after F(46). Fast doubling jumps from (F(k), F(k+1)) to (F(2k), F(2k+1)):
+ *
+ *     F(2k)   = F(k) * (2*F(k+1) - F(k))
+ *     F(2k+1) = F(k)^2 + F(k+1)^2
+ *
+ * Walking the bits of n from the top gives F(n) in O(log n) steps.
+ *
+ *   n <= 92          : everything fits in a long (F(92) < 2^63), no BigInteger
+ *   n  > 92          : BigInteger; once the numbers get big (PARALLEL_BITS)
+ *                      the three products of a step run at the same time on
+ *                      the ForkJoin common pool
+ *
+ * Time:  O(log n) multiplications of up to 0.7 n bits (the last ones dominate)
+ * Space: O(n) bits for the result, no O(n) array like Iterfibo
+ */
+public class FastFibo {
+
+    static final int LONG_LIMIT = 92;
+
+    // Numbers at least this many bits long are multiplied in parallel
+    static final int PARALLEL_BITS = 1 << 16;
+
+    // F(n) for 0 <= n <= 92
+    public static long fibLong(int n) {
+        if (n < 0 || n > LONG_LIMIT) throw new IllegalArgumentException("n must be 0.." + LONG_LIMIT);
+        long a = 0, b = 1;      // F(k), F(k+1), starting at k = 0
+        for (int bit = 31 - Integer.numberOfLeadingZeros(Math.max(n, 1)); bit >= 0; bit--) {
+            long c = a * (2 * b - a);   // F(2k)
+            long d = a * a + b * b;     // F(2k+1)
+            if (((n >>> bit) & 1) == 0) {
+                a = c;
+                b = d;
+            } else {
+                a = d;
+                b = c + d;
+            }
+        }
+        return a;
+    }
+
+    public static BigInteger fib(long n) {
+        return fib(n, true);
+    }
+
+    // F(n) for any n >= 0; parallel = false keeps every multiplication on the calling thread
+    public static BigInteger fib(long n, boolean parallel) {
+        if (n < 0) throw new IllegalArgumentException("n must be >= 0");
+        if (n <= LONG_LIMIT) return BigInteger.valueOf(fibLong((int) n));
+        return pair(n, parallel)[0];
+    }
+
+    // {F(n), F(n+1)} by fast doubling (also used to jump ahead in a sequence)
+    static BigInteger[] pair(long n, boolean parallel) {
+        BigInteger a = BigInteger.ZERO, b = BigInteger.ONE;
+        for (int bit = 63 - Long.numberOfLeadingZeros(Math.max(n, 1)); bit >= 0; bit--) {
+            BigInteger c, d;
+            if (parallel && b.bitLength() >= PARALLEL_BITS) {
+                final BigInteger fa = a, fb = b;
+                ForkJoinTask<BigInteger> aa = ForkJoinTask.adapt(() -> fa.multiply(fa)).fork();
+                ForkJoinTask<BigInteger> bb = ForkJoinTask.adapt(() -> fb.multiply(fb)).fork();
+                c = a.multiply(b.shiftLeft(1).subtract(a));
+                d = aa.join().add(bb.join());
+            } else {
+                c = a.multiply(b.shiftLeft(1).subtract(a));
+                d = a.multiply(a).add(b.multiply(b));
+            }
+            if (((n >>> bit) & 1) == 0) {
+                a = c;
+                b = d;
+            } else {
+                a = d;
+                b = c.add(d);
+            }
+        }
+        return new BigInteger[] {a, b};
+    }
+
+    // Iterfibo with BigInteger and two variables: the exact O(n)-additions baseline
+    static BigInteger iterBig(int n) {
+        BigInteger a = BigInteger.ZERO, b = BigInteger.ONE;
+        for (int i = 0; i < n; i++) {
+            BigInteger t = a.add(b);
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /*
+     * Benchmark: time and bytes allocated (calling thread) as n grows.
+     *   Iterfibo     : int[] of n+1 entries, wrong (overflow) beyond n = 46
+     *   iter BigInt  : same loop with BigInteger, exact but O(n) big additions
+     *   doubling     : this class, serial and parallel
+     */
+    public static void main(String[] args) {
+        if (args.length > 0) {
+            long n = Long.parseLong(args[0]);
+            BigInteger f = fib(n);
+            System.out.println("F(" + n + ") has " + f.bitLength() + " bits"
+                    + (f.bitLength() < 400 ? ": " + f : ""));
+            return;
+        }
+        if (!fib(200).equals(iterBig(200)) || fibLong(92) != 7540113804746346429L)
+            throw new IllegalStateException("self-check failed");
+
+        com.sun.management.ThreadMXBean mx =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        System.out.printf("%10s | %-22s | %-22s | %-22s | %-12s%n",
+                "n", "Iterfibo (int[])", "iter BigInteger", "doubling serial", "doubling par");
+
+        for (int n : new int[] {90, 1_000, 10_000, 100_000, 1_000_000, 10_000_000}) {
+            StringBuilder row = new StringBuilder(String.format("%10d", n));
+            for (int mode = 0; mode < 4; mode++) {
+                if (mode == 1 && n > 100_000) {
+                    row.append(String.format(" | %-22s", "(too slow)"));
+                    continue;
+                }
+                long bestNs = Long.MAX_VALUE, bytes = 0;
+                int reps = n <= 10_000 ? 50 : 3;
+                for (int r = 0; r < reps; r++) {
+                    long b0 = mx.getThreadAllocatedBytes(tid);
+                    long t0 = System.nanoTime();
+                    switch (mode) {
+                        case 0: Fibo.Iterfibo(n, new int[n + 1]); break;
+                        case 1: iterBig(n); break;
+                        case 2: fib(n, false); break;
+                        default: fib(n, true); break;
+                    }
+                    long ns = System.nanoTime() - t0;
+                    if (ns < bestNs) {
+                        bestNs = ns;
+                        bytes = mx.getThreadAllocatedBytes(tid) - b0;
+                    }
+                }
+                String cell = String.format("%9.3f ms %8.1f KB", bestNs / 1e6, bytes / 1024.0);
+                row.append(mode == 3 ? String.format(" | %9.3f ms", bestNs / 1e6) : " | " + cell);
+            }
+            System.out.println(row);
+        }
+        System.out.println("(Iterfibo overflows int for n > 46; parallel column counts only wall time)");
+    }
+}
@@ -0,0 +1,314 @@
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * ------------------ BATCH MODULAR FIBONACCI QUERIES ------------------
+ * Workload: millions of (n, modulus) pairs, answer F(n) mod m for each.
+ * Fibo.Iterfibo would need an int[n+1] per query (and overflows anyway).
+ *
+ *   1. sort the query indices by (m, n) so equal queries sit together and
+ *      are computed once (primitive merge sort, no boxing)
+ *   2. every distinct query: fast doubling on primitive longs
+ *          F(2k)   = F(k) * (2F(k+1) - F(k))   mod m
+ *          F(2k+1) = F(k)^2 + F(k+1)^2         mod m
+ *      O(log n) steps, no allocation. Products are exact for m < 2^31.5;
+ *      bigger odd moduli (< 2^62) use Montgomery multiplication, set up once
+ *      per modulus group; anything else falls back to double-and-add.
+ *   3. a bounded, lock-free cache of recent answers: one hash lookup for
+ *      hot (n, m) pairs across batches and threads
+ *
+ * Time:  O(q log q) sorting + O(log n) per distinct query
+ * Space: O(q) for the batch + fixed-size cache
+ */
+public class FiboQueries {
+
+    // ---------------------------------------------------------------- math
+
+    // Largest m for which (m-1)^2 fits in a long
+    static final long SMALL_MOD = 3_037_000_499L;
+
+    static long addMod(long a, long b, long m) {
+        return a >= m - b ? a - (m - b) : a + b;     // no overflow even for m near 2^63
+    }
+
+    // Double-and-add a * b mod m: slow (63 steps) but exact for any m < 2^63
+    static long mulMod(long a, long b, long m) {
+        if (m <= SMALL_MOD) return a * b % m;
+        long r = 0;
+        while (b > 0) {
+            if ((b & 1) != 0) r = addMod(r, a, m);
+            a = addMod(a, a, m);
+            b >>>= 1;
+        }
+        return r;
+    }
+
+    /*
+     * Montgomery arithmetic for odd m < 2^62: numbers are kept as x * 2^64 mod m
+     * and a product costs three 64x64 multiplications instead of a 63-step loop.
+     * Set up once per modulus; the batch is sorted by m, so once per group.
+     */
+    static final class Montgomery {
+        static final long LIMIT = 1L << 62;
+
+        final long m;
+        final long negInv;      // -m^-1 mod 2^64
+        final long one;         // 2^64 mod m = 1 in Montgomery form
+
+        Montgomery(long m) {
+            if ((m & 1) == 0 || m >= LIMIT) throw new IllegalArgumentException("need an odd m < 2^62");
+            this.m = m;
+            long inv = m;                       // correct to 3 bits, each step doubles that
+            for (int i = 0; i < 5; i++)
+                inv *= 2 - m * inv;
+            negInv = -inv;
+            one = (Long.remainderUnsigned(-1L, m) + 1) % m;
+        }
+
+        // a * b * 2^-64 mod m, a and b < m
+        long mul(long a, long b) {
+            long hi = Math.multiplyHigh(a, b), lo = a * b;
+            long u = lo * negInv;
+            long uHi = Math.multiplyHigh(u, m) + ((u >> 63) & m);   // unsigned high half of u * m
+            long t = hi + uHi + (lo != 0 ? 1 : 0);                  // (a*b + u*m) / 2^64 < 2m
+            return t >= m ? t - m : t;
+        }
+    }
+
+    // F(n) mod m, n >= 0, m >= 1
+    public static long fibMod(long n, long m) {
+        if (n < 0 || m < 1) throw new IllegalArgumentException("need n >= 0 and m >= 1");
+        if (m == 1) return 0;
+        if (m > SMALL_MOD && (m & 1) != 0 && m < Montgomery.LIMIT) return fibMod(n, new Montgomery(m));
+        long a = 0, b = 1;      // F(k), F(k+1) mod m
+        for (int bit = 63 - Long.numberOfLeadingZeros(Math.max(n, 1)); bit >= 0; bit--) {
+            long c = mulMod(a, addMod(b, b - a + (b >= a ? 0 : m), m), m);     // F(2k)
+            long d = addMod(mulMod(a, a, m), mulMod(b, b, m), m);               // F(2k+1)
+            if (((n >>> bit) & 1) == 0) {
+                a = c;
+                b = d;
+            } else {
+                a = d;
+                b = addMod(c, d, m);
+            }
+        }
+        return a;
+    }
+
+    // The same doubling steps in Montgomery form
+    static long fibMod(long n, Montgomery mg) {
+        long m = mg.m, a = 0, b = mg.one;
+        for (int bit = 63 - Long.numberOfLeadingZeros(Math.max(n, 1)); bit >= 0; bit--) {
+            long c = mg.mul(a, addMod(b, b - a + (b >= a ? 0 : m), m));
+            long d = addMod(mg.mul(a, a), mg.mul(b, b), m);
+            if (((n >>> bit) & 1) == 0) {
+                a = c;
+                b = d;
+            } else {
+                a = d;
+                b = addMod(c, d, m);
+            }
+        }
+        return mg.mul(a, 1);    // back to normal form
+    }
+
+    // ---------------------------------------------------------------- cache
+
+    /*
+     * Direct-mapped cache: slot = hash(n, m) & mask, a new entry simply
+     * replaces the old one. Entries are immutable and published through an
+     * AtomicReferenceArray, so readers never lock and never see half an entry.
+     */
+    static final class Cache {
+        static final class Entry {
+            final long n, m, value;
+
+            Entry(long n, long m, long value) {
+                this.n = n;
+                this.m = m;
+                this.value = value;
+            }
+        }
+
+        private final AtomicReferenceArray<Entry> slots;
+        private final int mask;
+
+        Cache(int capacity) {
+            int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+            slots = new AtomicReferenceArray<>(size);
+            mask = size - 1;
+        }
+
+        private int slot(long n, long m) {
+            long h = n * 0x9E3779B97F4A7C15L + m;
+            h ^= h >>> 29;
+            h *= 0xBF58476D1CE4E5B9L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+
+        // Cached F(n) mod m, or -1 on a miss
+        long get(long n, long m) {
+            Entry e = slots.get(slot(n, m));
+            return e != null && e.n == n && e.m == m ? e.value : -1;
+        }
+
+        void put(long n, long m, long value) {
+            slots.set(slot(n, m), new Entry(n, m, value));
+        }
+    }
+
+    private final Cache cache;
+    final LongAdder hits = new LongAdder(), misses = new LongAdder();     // cache statistics over all callers
+
+    public FiboQueries(int cacheCapacity) {
+        cache = new Cache(cacheCapacity);
+    }
+
+    // Single query through the cache
+    public long query(long n, long m) {
+        long v = cache.get(n, m);
+        if (v >= 0) {
+            hits.increment();
+        } else {
+            misses.increment();
+            v = fibMod(n, m);
+            cache.put(n, m, v);
+        }
+        return v;
+    }
+
+    // result[i] = F(n[i]) mod m[i]
+    public long[] answer(long[] n, long[] m) {
+        int q = n.length;
+        if (m.length != q) throw new IllegalArgumentException("n and m differ in length");
+
+        //step 1: sort query indices by (m, n)
+        int[] idx = new int[q];
+        for (int i = 0; i < q; i++)
+            idx[i] = i;
+        sort(idx, new int[q], 0, q, n, m);
+
+        //step 2: one computation per distinct (n, m), Montgomery set up once per m
+        long[] result = new long[q];
+        Montgomery mg = null;
+        long hit = 0, miss = 0;         // added to the shared counters once per batch
+        for (int k = 0; k < q; k++) {
+            int i = idx[k];
+            if (k > 0 && n[idx[k - 1]] == n[i] && m[idx[k - 1]] == m[i]) {
+                result[i] = result[idx[k - 1]];     // duplicate of the previous query
+                continue;
+            }
+            long v = cache.get(n[i], m[i]);
+            if (v >= 0) {
+                hit++;
+            } else {
+                miss++;
+                if (m[i] > SMALL_MOD && (m[i] & 1) != 0 && m[i] < Montgomery.LIMIT) {
+                    if (n[i] < 0) throw new IllegalArgumentException("need n >= 0 and m >= 1");
+                    if (mg == null || mg.m != m[i]) mg = new Montgomery(m[i]);
+                    v = fibMod(n[i], mg);
+                } else {
+                    v = fibMod(n[i], m[i]);
+                }
+                cache.put(n[i], m[i], v);
+            }
+            result[i] = v;
+        }
+        hits.add(hit);
+        misses.add(miss);
+        return result;
+    }
+
+    // Merge sort of idx[lo, hi) by (m, n) using tmp as buffer
+    private static void sort(int[] idx, int[] tmp, int lo, int hi, long[] n, long[] m) {
+        if (hi - lo < 16) {
+            for (int i = lo + 1; i < hi; i++) {
+                int x = idx[i], j = i - 1;
+                while (j >= lo && less(x, idx[j], n, m)) {
+                    idx[j + 1] = idx[j];
+                    j--;
+                }
+                idx[j + 1] = x;
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        sort(idx, tmp, lo, mid, n, m);
+        sort(idx, tmp, mid, hi, n, m);
+        System.arraycopy(idx, lo, tmp, lo, hi - lo);
+        for (int i = lo, a = lo, b = mid; i < hi; i++) {
+            if (b >= hi || (a < mid && !less(tmp[b], tmp[a], n, m))) idx[i] = tmp[a++];
+            else idx[i] = tmp[b++];
+        }
+    }
+
+    private static boolean less(int x, int y, long[] n, long[] m) {
+        return m[x] != m[y] ? m[x] < m[y] : n[x] < n[y];
+    }
+
+    /*
+     * Benchmark:
+     *   A) n <= 10^4, m = 10^9+7 : Iterfibo-style (long[n+1] per query) vs batch
+     *   B) 10^6 queries, n up to 10^18, hot n values, mixed 30- and 62-bit moduli
+     *      (second and third batch mostly hit the cache)
+     */
+    public static void main(String[] args) {
+        Random rnd = new Random(1);
+        long[] mods = {1_000_000_007L, 998_244_353L, (1L << 61) - 1, 4_611_686_018_427_387_847L,
+                       1L << 40, 9_223_372_036_854_775_783L};
+        for (int t = 0; t < 3000; t++) {        // self-check against BigInteger
+            long n = rnd.nextInt(5000), m = t < 1000 ? mods[t % mods.length] : (rnd.nextLong() >>> 1 >>> rnd.nextInt(62)) | 1;
+            if (fibMod(n, m) != FastFibo.fib(n).mod(BigInteger.valueOf(m)).longValue())
+                throw new IllegalStateException("mismatch at n=" + n + " m=" + m);
+        }
+
+        int q = 50_000;
+        long[] n = new long[q], m = new long[q];
+        for (int i = 0; i < q; i++) {
+            n[i] = rnd.nextInt(10_000);
+            m[i] = 1_000_000_007L;
+        }
+        for (int round = 0; round < 2; round++) {
+            long t0 = System.nanoTime();
+            long sum = 0;
+            for (int i = 0; i < q; i++) {
+                long[] f = new long[(int) n[i] + 2];
+                f[1] = 1;
+                for (int j = 2; j <= n[i]; j++)
+                    f[j] = (f[j - 1] + f[j - 2]) % m[i];
+                sum += f[(int) n[i]];
+            }
+            long t1 = System.nanoTime();
+            long[] r = new FiboQueries(1 << 16).answer(n, m);
+            long t2 = System.nanoTime();
+            long check = 0;
+            for (long v : r) check += v;
+            if (check != sum) throw new IllegalStateException("batch disagrees with the loop");
+            if (round == 1)
+                System.out.printf("A) %d queries n<=1e4: per-query array %.1f ms, batch %.1f ms%n",
+                        q, (t1 - t0) / 1e6, (t2 - t1) / 1e6);
+        }
+
+        q = 1_000_000;
+        n = new long[q];
+        m = new long[q];
+        long[] hot = new long[1000];
+        for (int i = 0; i < hot.length; i++)
+            hot[i] = rnd.nextLong() >>> 4;
+        for (int i = 0; i < q; i++) {
+            n[i] = rnd.nextInt(10) < 8 ? hot[rnd.nextInt(hot.length)] : rnd.nextLong() >>> 4;
+            m[i] = mods[rnd.nextInt(4)];
+        }
+        FiboQueries service = new FiboQueries(1 << 20);
+        for (int batch = 1; batch <= 3; batch++) {
+            long h0 = service.hits.sum(), m0 = service.misses.sum();
+            long t0 = System.nanoTime();
+            service.answer(n, m);
+            long t1 = System.nanoTime();
+            System.out.printf("B) batch %d: %d queries in %.1f ms (cache hits %d, computed %d)%n",
+                    batch, q, (t1 - t0) / 1e6, service.hits.sum() - h0, service.misses.sum() - m0);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+import java.math.BigInteger;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/*
+ * ------------------ FIBONACCI SEQUENCE STREAMS ------------------
+ * Fibo.main fills an int[] of the whole range before printing it. These
+ * streams produce F(from), F(from+1), ..., F(to-1) with two numbers of state:
+ *
+ *   longs(from, to)  : LongStream, to <= 93 (F(92) is the last long)
+ *   range(from, to)  : Stream<BigInteger>, any 0 <= from <= to
+ *
+ * Both are backed by a Spliterator over [lo, hi). A split hands the first
+ * half off and keeps the second; nothing is computed until a part is
+ * actually traversed, then its pair (F(lo), F(lo+1)) is seeded by fast
+ * doubling (FastFibo.pair) and every further element is one addition.
+ * A parallel stream therefore runs on all cores with O(1) numbers per worker.
+ */
+public class FiboStreams {
+
+    // Below this many elements a part is not split (one jump ~ a few thousand additions)
+    static final long MIN_SPLIT = 1 << 10;
+
+    static final int CHARACTERISTICS = Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED
+            | Spliterator.IMMUTABLE | Spliterator.NONNULL;
+
+    public static LongStream longs(int from, int to) {
+        if (from < 0 || from > to || to > FastFibo.LONG_LIMIT + 1)
+            throw new IllegalArgumentException("need 0 <= from <= to <= " + (FastFibo.LONG_LIMIT + 1));
+        return StreamSupport.longStream(new LongPart(from, to), false);
+    }
+
+    public static Stream<BigInteger> range(long from, long to) {
+        return range(from, to, false);
+    }
+
+    public static Stream<BigInteger> range(long from, long to, boolean parallel) {
+        if (from < 0 || from > to) throw new IllegalArgumentException("need 0 <= from <= to");
+        return StreamSupport.stream(new BigPart(from, to), parallel);
+    }
+
+    // F(lo) .. F(hi-1) as longs
+    static final class LongPart implements Spliterator.OfLong {
+        int lo;
+        final int hi;
+        long a, b;              // F(lo), F(lo+1), valid when seeded
+        boolean seeded;
+
+        LongPart(int lo, int hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        private void seed() {
+            a = FastFibo.fibLong(lo);
+            b = lo < FastFibo.LONG_LIMIT ? FastFibo.fibLong(lo + 1) : 0;     // F(93) is never read
+            seeded = true;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            if (lo >= hi) return false;
+            if (!seeded) seed();
+            long t = a + b;
+            action.accept(a);
+            a = b;
+            b = t;
+            lo++;
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(LongConsumer action) {
+            if (lo >= hi) return;
+            if (!seeded) seed();
+            long x = a, y = b;
+            for (int i = lo; i < hi; i++) {
+                action.accept(x);
+                long t = x + y;
+                x = y;
+                y = t;
+            }
+            lo = hi;
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            return null;        // at most 93 elements, never worth it
+        }
+
+        @Override
+        public long estimateSize() {
+            return hi - lo;
+        }
+
+        @Override
+        public int characteristics() {
+            return CHARACTERISTICS;
+        }
+    }
+
+    // F(lo) .. F(hi-1) as BigIntegers
+    static final class BigPart implements Spliterator<BigInteger> {
+        long lo;
+        final long hi;
+        BigInteger a, b;        // F(lo), F(lo+1), null until the first element is needed
+
+        BigPart(long lo, long hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        private void seed() {
+            BigInteger[] p = FastFibo.pair(lo, false);
+            a = p[0];
+            b = p[1];
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super BigInteger> action) {
+            if (lo >= hi) return false;
+            if (a == null) seed();
+            BigInteger t = a.add(b);
+            action.accept(a);
+            a = b;
+            b = t;
+            lo++;
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super BigInteger> action) {
+            if (lo >= hi) return;
+            if (a == null) seed();
+            BigInteger x = a, y = b;
+            for (long i = lo; i < hi; i++) {
+                action.accept(x);
+                if (i + 1 < hi) {       // skip the last, unused addition
+                    BigInteger t = x.add(y);
+                    x = y;
+                    y = t;
+                }
+            }
+            lo = hi;
+            a = b = null;
+        }
+
+        @Override
+        public Spliterator<BigInteger> trySplit() {
+            if (hi - lo < 2 * MIN_SPLIT) return null;
+            long mid = lo + (hi - lo) / 2;
+            BigPart prefix = new BigPart(lo, mid);
+            prefix.a = a;       // an already seeded part passes its pair to the prefix
+            prefix.b = b;
+            lo = mid;
+            a = b = null;       // and reseeds lazily at mid
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return hi - lo;
+        }
+
+        @Override
+        public int characteristics() {
+            return CHARACTERISTICS;
+        }
+    }
+
+    /*
+     * Demo: the sequence Fibo.main prints, then a big range streamed serially
+     * and in parallel (total bits of F(0) .. F(to-1)), checked with
+     * F(0) + ... + F(n-1) = F(n+1) - 1.
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        longs(0, Math.min(count, FastFibo.LONG_LIMIT + 1)).forEach(f -> System.out.print(f + " "));
+        System.out.println();
+
+        BigInteger sum = range(0, 20_000, true).reduce(BigInteger.ZERO, BigInteger::add);
+        if (!sum.equals(FastFibo.fib(20_001).subtract(BigInteger.ONE)))
+            throw new IllegalStateException("parallel sum is wrong");
+
+        long to = args.length > 1 ? Long.parseLong(args[1]) : 200_000;
+        for (int round = 0; round < 2; round++) {       // round 0 = JIT warm-up
+            long t0 = System.nanoTime();
+            long serial = range(0, to, false).mapToLong(BigInteger::bitLength).sum();
+            long t1 = System.nanoTime();
+            long parallel = range(0, to, true).mapToLong(BigInteger::bitLength).sum();
+            long t2 = System.nanoTime();
+            if (serial != parallel) throw new IllegalStateException("serial and parallel disagree");
+            if (round == 1)
+                System.out.printf("F(0..%d): %d bits in total, serial %.1f ms, parallel %.1f ms (%d cores)%n",
+                        to - 1, serial, (t1 - t0) / 1e6, (t2 - t1) / 1e6,
+                        Runtime.getRuntime().availableProcessors());
+        }
+    }
+}
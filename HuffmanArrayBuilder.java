@@ -0,0 +1,329 @@
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/*
+ * ------------------ ARRAY-BASED HUFFMAN CONSTRUCTION ------------------
+ * Same greedy idea as HuffmanEncoding.main (merge the two lightest nodes),
+ * but with no Node objects and no PriorityQueue<Node>:
+ *
+ *   weight[i]  weight of node i   (leaves 0..n-1, merged nodes n..2n-2)
+ *   parent[i]  index of the parent node, later overwritten with the depth
+ *
+ * Two ways to pick the two lightest nodes:
+ *   1. Frequencies already sorted -> two-queue merge. Leaves are one queue,
+ *      merged nodes are created in non-decreasing order so they form the
+ *      second queue. Each step just compares the two queue heads: O(n).
+ *   2. Not sorted -> binary min-heap of node indices in a primitive int[]:
+ *      O(n log n).
+ *
+ * Parents always get a bigger index than their children, so one backward
+ * pass turns parent[] into depths (= code lengths).
+ *
+ * All arrays are kept inside the builder and reused, so repeated builds
+ * (per block, per message) allocate nothing.
+ *
+ * ------------------ LENGTH-LIMITED CODES (PACKAGE-MERGE) ------------------
+ * A skewed input can make the tree very deep. codeLengths(freq, lens, L)
+ * caps every code at L bits with the optimal package-merge algorithm:
+ *
+ *   level L list = leaves sorted by weight
+ *   level l list = merge(leaves, packages of two neighbours of level l+1)
+ *   take the 2n-2 lightest items of level 1; every time a leaf is taken
+ *   (directly or inside a package) its code gets one bit longer
+ *
+ * Time: O(n L)   Space: O(n L) longs (only used when the cap is hit)
+ */
+public class HuffmanArrayBuilder {
+
+    private long[] weight;
+    private int[] parent;
+    private int[] sym;          // leaf index -> symbol
+    private int[] heap;         // node indices, ordered by weight
+    private long[] keys;        // weight << 32 | symbol, for package-merge
+    private long[] levels;      // package-merge lists, level l at (l-1) * 2n
+    private final int[] levelSize = new int[HuffmanEncoding.MAX_CODE_LENGTH + 1];
+
+    public HuffmanArrayBuilder(int alphabetSize) {
+        ensureCapacity(alphabetSize);
+    }
+
+    private void ensureCapacity(int n) {
+        if (sym != null && sym.length >= n) return;
+        weight = new long[2 * n];
+        parent = new int[2 * n];
+        sym = new int[n];
+        heap = new int[n];
+        keys = new long[n];
+    }
+
+    /*
+     * Fill lens[s] with the Huffman code length of every symbol with
+     * freq[s] > 0 (others get 0). A lone symbol gets length 1.
+     * Returns the longest code length.
+     */
+    public int codeLengths(int[] freq, byte[] lens) {
+        ensureCapacity(freq.length);
+
+        //step 1: collect used symbols as leaves, check whether they are sorted
+        int n = 0;
+        boolean sorted = true;
+        for (int s = 0; s < freq.length; s++) {
+            lens[s] = 0;
+            if (freq[s] == 0) continue;
+            if (n > 0 && freq[s] < weight[n - 1]) sorted = false;
+            sym[n] = s;
+            weight[n] = freq[s];
+            n++;
+        }
+        if (n == 0) return 0;
+        if (n == 1) {
+            lens[sym[0]] = 1;
+            return 1;
+        }
+
+        //step 2: n-1 merges, node n+k is the k-th merged node
+        if (sorted) mergeSorted(n);
+        else mergeHeap(n);
+
+        //step 3: parent[] -> depth, root (2n-2) has depth 0
+        int root = 2 * n - 2;
+        parent[root] = 0;
+        int maxLen = 0;
+        for (int i = root - 1; i >= 0; i--) {
+            parent[i] = parent[parent[i]] + 1;
+            if (i < n) {
+                lens[sym[i]] = (byte) parent[i];
+                maxLen = Math.max(maxLen, parent[i]);
+            }
+        }
+        return maxLen;
+    }
+
+    /*
+     * Same as codeLengths(freq, lens), but no code is longer than maxLen bits.
+     * Falls back to package-merge only when the plain Huffman tree is too deep.
+     */
+    public int codeLengths(int[] freq, byte[] lens, int maxLen) {
+        if (maxLen < 1 || maxLen > HuffmanEncoding.MAX_CODE_LENGTH)
+            throw new IllegalArgumentException("maxLen must be 1.." + HuffmanEncoding.MAX_CODE_LENGTH);
+        int longest = codeLengths(freq, lens);
+        if (longest <= maxLen) return longest;
+        packageMerge(freq, lens, maxLen);
+        return maxLen;
+    }
+
+    private void packageMerge(int[] freq, byte[] lens, int maxLen) {
+        //step 1: leaves sorted by weight (ties by symbol)
+        int n = 0;
+        for (int s = 0; s < freq.length; s++) {
+            if (freq[s] != 0)
+                keys[n++] = ((long) freq[s] << 32) | s;
+        }
+        if (n > (1L << maxLen))
+            throw new IllegalArgumentException(n + " symbols do not fit in " + maxLen + "-bit codes");
+        java.util.Arrays.sort(keys, 0, n);
+        for (int i = 0; i < n; i++)
+            lens[(int) keys[i]] = 0;
+
+        int stride = 2 * n;
+        if (levels == null || levels.length < (long) maxLen * stride)
+            levels = new long[maxLen * stride];
+
+        //step 2: build the lists bottom-up, level maxLen holds only leaves
+        int base = (maxLen - 1) * stride;
+        for (int i = 0; i < n; i++)
+            levels[base + i] = keys[i] >>> 32;
+        levelSize[maxLen] = n;
+        for (int l = maxLen - 1; l >= 1; l--) {
+            int below = l * stride;
+            int packages = levelSize[l + 1] / 2;
+            int out = (l - 1) * stride;
+            int i = 0, j = 0, k = 0;
+            while (i < n || j < packages) {
+                long pkg = j < packages ? levels[below + 2 * j] + levels[below + 2 * j + 1] : Long.MAX_VALUE;
+                if (i < n && (keys[i] >>> 32) <= pkg) levels[out + k++] = keys[i++] >>> 32;
+                else { levels[out + k++] = pkg; j++; }
+            }
+            levelSize[l] = k;
+        }
+
+        //step 3: walk top-down, counting the leaves used at each level
+        int take = 2 * n - 2;
+        for (int l = 1; l <= maxLen && take > 0; l++) {
+            int leavesTaken;
+            if (l == maxLen) {
+                leavesTaken = take;
+            } else {
+                // replay the merge of level l for 'take' items
+                int below = l * stride;
+                int packages = levelSize[l + 1] / 2;
+                int i = 0, j = 0;
+                for (int k = 0; k < take; k++) {
+                    long pkg = j < packages ? levels[below + 2 * j] + levels[below + 2 * j + 1] : Long.MAX_VALUE;
+                    if (i < n && (keys[i] >>> 32) <= pkg) i++;
+                    else j++;
+                }
+                leavesTaken = i;
+                take = 2 * j;           // packages expand into two items of the level below
+            }
+            for (int i = 0; i < leavesTaken; i++)
+                lens[(int) keys[i]]++;
+            if (l == maxLen) break;
+        }
+    }
+
+    // Linear-time two-queue merge (leaves [0,n) are sorted by weight)
+    private void mergeSorted(int n) {
+        int leaf = 0;           // head of the leaf queue
+        int node = n;           // head of the merged-node queue
+        for (int next = n; next < 2 * n - 1; next++) {
+            int a = (leaf < n && (node >= next || weight[leaf] <= weight[node])) ? leaf++ : node++;
+            int b = (leaf < n && (node >= next || weight[leaf] <= weight[node])) ? leaf++ : node++;
+            weight[next] = weight[a] + weight[b];
+            parent[a] = next;
+            parent[b] = next;
+        }
+    }
+
+    // Heap fallback for unsorted frequencies
+    private void mergeHeap(int n) {
+        int size = n;
+        for (int i = 0; i < n; i++)
+            heap[i] = i;
+        for (int i = size / 2 - 1; i >= 0; i--)
+            siftDown(i, size);
+
+        for (int next = n; next < 2 * n - 1; next++) {
+            int a = heap[0];
+            heap[0] = heap[--size];
+            siftDown(0, size);
+            int b = heap[0];
+
+            weight[next] = weight[a] + weight[b];
+            parent[a] = next;
+            parent[b] = next;
+            heap[0] = next;     // replace the second minimum with the merged node
+            siftDown(0, size);
+        }
+    }
+
+    private void siftDown(int i, int size) {
+        int x = heap[i];
+        long w = weight[x];
+        while (true) {
+            int c = 2 * i + 1;
+            if (c >= size) break;
+            if (c + 1 < size && weight[heap[c + 1]] < weight[heap[c]]) c++;
+            if (weight[heap[c]] >= w) break;
+            heap[i] = heap[c];
+            i = c;
+        }
+        heap[i] = x;
+    }
+
+    /*
+     * Benchmark: PriorityQueue<Node> (HuffmanEncoding.buildTree + codeLengths)
+     * vs this builder, on 256 and 65536 symbol alphabets, sorted and unsorted.
+     * Reports build time and bytes allocated per build.
+     */
+    public static void main(String[] args) throws java.io.IOException {
+        if (args.length > 0) {
+            lengthLimitReport(args);
+            return;
+        }
+        com.sun.management.ThreadMXBean mx =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        Random rnd = new Random(42);
+
+        for (int alphabet : new int[] {256, 65536}) {
+            int[] freq = new int[alphabet];
+            for (int s = 0; s < alphabet; s++)
+                freq[s] = 1 + (int) (1_000_000.0 / (1 + rnd.nextInt(alphabet)));   // Zipf-like
+            int[] sortedFreq = freq.clone();
+            java.util.Arrays.sort(sortedFreq);
+
+            byte[] lens = new byte[alphabet];
+            byte[] check = new byte[alphabet];
+            HuffmanArrayBuilder builder = new HuffmanArrayBuilder(alphabet);
+            int iters = alphabet == 256 ? 20_000 : 100;
+
+            for (int[] f : new int[][] {freq, sortedFreq}) {
+                String label = String.format("%5d %-8s", alphabet, f == freq ? "unsorted" : "sorted");
+
+                // same total cost from both builders (ties may give different but equally good trees)
+                HuffmanEncoding.codeLengths(HuffmanEncoding.buildTree(f), 0, check);
+                builder.codeLengths(f, lens);
+                if (cost(f, lens) != cost(f, check))
+                    throw new IllegalStateException("cost mismatch for " + label);
+
+                for (int round = 0; round < 2; round++) {   // round 0 = JIT warm-up
+                    long bytes0 = mx.getThreadAllocatedBytes(tid);
+                    long t0 = System.nanoTime();
+                    for (int i = 0; i < iters; i++)
+                        HuffmanEncoding.codeLengths(HuffmanEncoding.buildTree(f), 0, check);
+                    long t1 = System.nanoTime();
+                    long bytes1 = mx.getThreadAllocatedBytes(tid);
+                    for (int i = 0; i < iters; i++)
+                        builder.codeLengths(f, lens);
+                    long t2 = System.nanoTime();
+                    long bytes2 = mx.getThreadAllocatedBytes(tid);
+
+                    if (round == 1) {
+                        System.out.printf("%s  PriorityQueue<Node> %9.1f us %9d B/build | array %8.1f us %5d B/build%n",
+                                label, (t1 - t0) / 1e3 / iters, (bytes1 - bytes0) / iters,
+                                (t2 - t1) / 1e3 / iters, (bytes2 - bytes1) / iters);
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+     * java HuffmanArrayBuilder <maxLen> [files...]
+     * Ratio cost of capping code lengths, per file with one table per block
+     * (as the compressor does) and for one table over the whole file.
+     */
+    static void lengthLimitReport(String[] args) throws java.io.IOException {
+        int maxLen = Integer.parseInt(args[0]);
+        String[] files = args.length > 1 ? java.util.Arrays.copyOfRange(args, 1, args.length)
+                : new String[] {"Churn_Modelling.csv", "sales_data_sample.csv"};
+        HuffmanArrayBuilder builder = new HuffmanArrayBuilder(256);
+        byte[] lens = new byte[256];
+
+        for (String file : files) {
+            byte[] data = java.nio.file.Files.readAllBytes(java.nio.file.Paths.get(file));
+            int[] whole = new int[256];
+            long free = 0, capped = 0;
+            int deepest = 0;
+            for (int off = 0; off < data.length; off += HuffmanEncoding.BLOCK_SIZE) {
+                int end = Math.min(data.length, off + HuffmanEncoding.BLOCK_SIZE);
+                int[] freq = new int[256];
+                for (int i = off; i < end; i++)
+                    freq[data[i] & 0xFF]++;
+                for (int s = 0; s < 256; s++)
+                    whole[s] += freq[s];
+                deepest = Math.max(deepest, builder.codeLengths(freq, lens));
+                free += cost(freq, lens);
+                builder.codeLengths(freq, lens, maxLen);
+                capped += cost(freq, lens);
+            }
+            builder.codeLengths(whole, lens);
+            long wholeFree = cost(whole, lens);
+            builder.codeLengths(whole, lens, maxLen);
+            long wholeCapped = cost(whole, lens);
+
+            System.out.printf("%-24s deepest %2d | per block: %d -> %d bits (+%.4f%%) | whole file: %d -> %d bits (+%.4f%%)%n",
+                    file, deepest, free, capped, 100.0 * (capped - free) / Math.max(free, 1),
+                    wholeFree, wholeCapped, 100.0 * (wholeCapped - wholeFree) / Math.max(wholeFree, 1));
+        }
+    }
+
+    // Total encoded size in bits = sum of freq * length
+    static long cost(int[] freq, byte[] lens) {
+        long bits = 0;
+        for (int s = 0; s < freq.length; s++)
+            bits += (long) freq[s] * lens[s];
+        return bits;
+    }
+}
@@ -0,0 +1,507 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/*
+ * ------------------ PARALLEL BLOCK HUFFMAN (SEEKABLE) ------------------
+ * The file is split into fixed-size blocks that are encoded independently,
+ * so all cores can work at once and any block can be decoded on its own.
+ *
+ *   shared table    : frequencies of the whole file are counted in parallel
+ *                     (ForkJoin, one partial int[256] per task, summed on
+ *                     the way back up), one code for every block
+ *   per-block table : every block carries its own length table (same
+ *                     payload as HuffmanEncoding), better on mixed data
+ *
+ * File layout (big-endian):
+ *   header : magic:int blockSize:int shared:byte [tableLen:int table]
+ *   blocks : payload of block 0, 1, 2, ...
+ *   index  : blockCount:int (offset:long rawLen:int payloadLen:int) * count
+ *   trailer: indexPos:long
+ *
+ * The index gives every block's position, so decompression runs all blocks
+ * in parallel (each writes to its own spot k * blockSize of the output), and
+ * readBlock(k) touches only block k.
+ *
+ * Memory: a few blocks per worker thread + a batch of encoded payloads.
+ */
+public class HuffmanBlockCompressor {
+
+    static final int MAGIC = 0x48554642;    // "HUFB"
+    static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+    // Per-thread buffers, reused by every task that runs on a worker
+    static final class Scratch {
+        byte[] block = new byte[0];
+        byte[] payload = new byte[0];
+        final HuffmanEncoding.BitWriter bw = new HuffmanEncoding.BitWriter(DEFAULT_BLOCK_SIZE);
+        final HuffmanEncoding.BitReader br = new HuffmanEncoding.BitReader();
+        final HuffmanArrayBuilder builder = new HuffmanArrayBuilder(256);
+        final HuffmanTableDecoder table = new HuffmanTableDecoder();
+
+        byte[] block(int size) {
+            if (block.length < size) block = new byte[size];
+            return block;
+        }
+
+        byte[] payload(int size) {
+            if (payload.length < size) payload = new byte[size];
+            return payload;
+        }
+    }
+
+    static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    // Block positions read from the end of a compressed file
+    static final class Index {
+        int blockSize;
+        byte[] sharedLens;          // null in per-block mode
+        HuffmanTableDecoder sharedTable;
+        int sharedSymbol = -1;      // shared table with one symbol: blocks carry no code bits
+        long[] offset;
+        int[] rawLen;
+        int[] payloadLen;
+
+        int blockCount() {
+            return offset.length;
+        }
+    }
+
+    // ---------------------------------------------------------------- compress
+
+    public static void compress(Path in, Path out, int blockSize, boolean sharedTable) throws IOException {
+        try {
+            compressBlocks(in, out, blockSize, sharedTable);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();     // I/O errors from worker tasks
+        }
+    }
+
+    private static void compressBlocks(Path in, Path out, int blockSize, boolean sharedTable) throws IOException {
+        if (blockSize < 1 || blockSize > HuffmanEncoding.BLOCK_SIZE)
+            throw new IllegalArgumentException("blockSize must be 1.." + HuffmanEncoding.BLOCK_SIZE);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        try (FileChannel src = FileChannel.open(in, StandardOpenOption.READ);
+             FileChannel dst = FileChannel.open(out, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = src.size();
+            long count = (size + blockSize - 1) / blockSize;
+            if (count > Integer.MAX_VALUE) throw new IOException("file too large for block size " + blockSize);
+            int blocks = (int) count;
+
+            //step 1: shared mode -> count frequencies of the whole file in parallel
+            byte[] lens = null;
+            int[] codes = null;
+            boolean single = false;
+            if (sharedTable && blocks > 0) {
+                long[] total = pool.invoke(new CountTask(src, size, blockSize, 0, blocks));
+                int[] freq = scaleToInt(total);
+                lens = new byte[256];
+                codes = new int[256];
+                new HuffmanArrayBuilder(256).codeLengths(freq, lens, HuffmanEncoding.MAX_CODE_LENGTH);
+                HuffmanEncoding.canonicalCodes(lens, codes);
+                single = HuffmanEncoding.singleSymbol(freq);
+            }
+
+            //step 2: header
+            ByteArrayOutputStream head = new ByteArrayOutputStream();
+            DataOutputStream dos = new DataOutputStream(head);
+            dos.writeInt(MAGIC);
+            dos.writeInt(blockSize);
+            dos.writeByte(lens != null ? 1 : 0);
+            if (lens != null) {
+                HuffmanEncoding.BitWriter bw = new HuffmanEncoding.BitWriter(256);
+                HuffmanEncoding.writeLengths(lens, bw);
+                bw.flushBits();
+                dos.writeInt(bw.size());
+                bw.writeTo(dos);
+            }
+            long pos = 0;
+            pos += writeFully(dst, ByteBuffer.wrap(head.toByteArray()), pos);
+
+            //step 3: encode in batches (parallel), write payloads in block order
+            long[] offset = new long[blocks];
+            int[] rawLen = new int[blocks];
+            int[] payloadLen = new int[blocks];
+            int batch = Math.max(1, pool.getParallelism() * 4);
+            for (int first = 0; first < blocks; first += batch) {
+                int last = Math.min(blocks, first + batch);
+                byte[][] payloads = new byte[last - first][];
+                pool.invoke(new EncodeTask(src, size, blockSize, lens, codes, single, first, first, last, payloads));
+                for (int k = first; k < last; k++) {
+                    byte[] p = payloads[k - first];
+                    offset[k] = pos;
+                    rawLen[k] = (int) Math.min(blockSize, size - (long) k * blockSize);
+                    payloadLen[k] = p.length;
+                    pos += writeFully(dst, ByteBuffer.wrap(p), pos);
+                }
+            }
+
+            //step 4: index + trailer
+            ByteBuffer index = ByteBuffer.allocate(4 + blocks * 16 + 8);
+            index.putInt(blocks);
+            for (int k = 0; k < blocks; k++) {
+                index.putLong(offset[k]);
+                index.putInt(rawLen[k]);
+                index.putInt(payloadLen[k]);
+            }
+            index.putLong(pos);
+            index.flip();
+            writeFully(dst, index, pos);
+        }
+    }
+
+    // Keep relative frequencies but fit every count in an int (never drop a used symbol)
+    static int[] scaleToInt(long[] total) {
+        long max = 0;
+        for (long f : total) max = Math.max(max, f);
+        int shift = 0;
+        while ((max >>> shift) > Integer.MAX_VALUE / 2) shift++;
+        int[] freq = new int[256];
+        for (int s = 0; s < 256; s++) {
+            if (total[s] != 0)
+                freq[s] = (int) Math.max(1, total[s] >>> shift);
+        }
+        return freq;
+    }
+
+    // Frequency count of blocks [from, to): split in halves, add the partial counts
+    static final class CountTask extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        final FileChannel src;
+        final long size;
+        final int blockSize, from, to;
+
+        CountTask(FileChannel src, long size, int blockSize, int from, int to) {
+            this.src = src;
+            this.size = size;
+            this.blockSize = blockSize;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                CountTask left = new CountTask(src, size, blockSize, from, mid);
+                left.fork();
+                long[] right = new CountTask(src, size, blockSize, mid, to).compute();
+                long[] sum = left.join();
+                for (int s = 0; s < 256; s++)
+                    sum[s] += right[s];
+                return sum;
+            }
+            long[] freq = new long[256];
+            try {
+                byte[] block = SCRATCH.get().block(blockSize);
+                int n = readBlock(src, size, blockSize, from, block);
+                for (int i = 0; i < n; i++)
+                    freq[block[i] & 0xFF]++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return freq;
+        }
+    }
+
+    // Encode blocks [from, to) into payloads[k - base]
+    static final class EncodeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final FileChannel src;
+        final long size;
+        final int blockSize;
+        final byte[] lens;          // shared table, or null for per-block tables
+        final int[] codes;
+        final boolean single;
+        final int base, from, to;
+        final byte[][] payloads;
+
+        EncodeTask(FileChannel src, long size, int blockSize, byte[] lens, int[] codes, boolean single,
+                   int base, int from, int to, byte[][] payloads) {
+            this.src = src;
+            this.size = size;
+            this.blockSize = blockSize;
+            this.lens = lens;
+            this.codes = codes;
+            this.single = single;
+            this.base = base;
+            this.from = from;
+            this.to = to;
+            this.payloads = payloads;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new EncodeTask(src, size, blockSize, lens, codes, single, base, from, mid, payloads),
+                          new EncodeTask(src, size, blockSize, lens, codes, single, base, mid, to, payloads));
+                return;
+            }
+            try {
+                Scratch sc = SCRATCH.get();
+                byte[] block = sc.block(blockSize);
+                int n = readBlock(src, size, blockSize, from, block);
+                sc.bw.reset();
+                if (lens == null) {
+                    HuffmanEncoding.encodeBlock(block, n, sc.bw, sc.builder, HuffmanEncoding.MAX_CODE_LENGTH);
+                } else {
+                    if (!single)
+                        HuffmanEncoding.encodeSymbols(block, 0, n, codes, lens, sc.bw);
+                    sc.bw.flushBits();
+                }
+                payloads[from - base] = sc.bw.toByteArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // -------------------------------------------------------------- decompress
+
+    public static Index readIndex(FileChannel ch) throws IOException {
+        long size = ch.size();
+        if (size < 17) throw new IOException("not a block-compressed file");
+        ByteBuffer head = ByteBuffer.allocate(13);
+        readFully(ch, head, 0);
+        head.flip();
+        if (head.getInt() != MAGIC) throw new IOException("not a block-compressed file");
+
+        Index idx = new Index();
+        idx.blockSize = head.getInt();
+        if (idx.blockSize < 1 || idx.blockSize > HuffmanEncoding.BLOCK_SIZE)
+            throw new IOException("corrupt block size");
+        if (head.get() == 1) {
+            int tableLen = head.getInt();
+            if (tableLen < 0 || tableLen > 1024) throw new IOException("corrupt shared table");
+            ByteBuffer table = ByteBuffer.allocate(tableLen);
+            readFully(ch, table, 13);
+            HuffmanEncoding.BitReader br = new HuffmanEncoding.BitReader();
+            br.reset(table.array(), tableLen);
+            idx.sharedLens = new byte[256];
+            if (HuffmanEncoding.readLengths(br, idx.sharedLens) == 1) {
+                idx.sharedSymbol = 0;
+                while (idx.sharedLens[idx.sharedSymbol] == 0) idx.sharedSymbol++;
+            }
+            int[] codes = new int[256];
+            HuffmanEncoding.canonicalCodes(idx.sharedLens, codes);
+            idx.sharedTable = new HuffmanTableDecoder();
+            idx.sharedTable.build(codes, idx.sharedLens);      // read-only afterwards, shared by all threads
+        }
+
+        ByteBuffer trailer = ByteBuffer.allocate(8);
+        readFully(ch, trailer, size - 8);
+        trailer.flip();
+        long indexPos = trailer.getLong();
+        if (indexPos < 0 || indexPos > size - 12) throw new IOException("corrupt block index");
+        ByteBuffer index = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE, size - 8 - indexPos));
+        readFully(ch, index, indexPos);
+        index.flip();
+        int blocks = index.getInt();
+        if (blocks < 0 || (long) blocks * 16 > index.remaining()) throw new IOException("corrupt block index");
+        idx.offset = new long[blocks];
+        idx.rawLen = new int[blocks];
+        idx.payloadLen = new int[blocks];
+        for (int k = 0; k < blocks; k++) {
+            idx.offset[k] = index.getLong();
+            idx.rawLen[k] = index.getInt();
+            idx.payloadLen[k] = index.getInt();
+            // Every block but the last is full, the last holds 1..blockSize bytes: the
+            // random-access offsets (block k starts at k * blockSize) rely on it
+            boolean sized = k < blocks - 1 ? idx.rawLen[k] == idx.blockSize
+                    : idx.rawLen[k] > 0 && idx.rawLen[k] <= idx.blockSize;
+            if (!sized || idx.payloadLen[k] < 0 || idx.payloadLen[k] > HuffmanEncoding.maxPayload(idx.rawLen[k])
+                    || idx.offset[k] < 0 || idx.offset[k] + idx.payloadLen[k] > indexPos)
+                throw new IOException("corrupt block index entry " + k);
+        }
+        return idx;
+    }
+
+    // Decode block k into dst (dst.length >= blockSize); returns its raw length
+    static int decodeBlock(FileChannel ch, Index idx, int k, byte[] dst, Scratch sc) throws IOException {
+        int payloadLen = idx.payloadLen[k];
+        byte[] payload = sc.payload(payloadLen);
+        readFully(ch, ByteBuffer.wrap(payload, 0, payloadLen), idx.offset[k]);
+        sc.br.reset(payload, payloadLen);
+        int n = idx.rawLen[k];
+        if (idx.sharedTable == null) {
+            HuffmanEncoding.decodeBlock(sc.br, dst, n, sc.table);
+        } else {
+            if (idx.sharedSymbol >= 0) {
+                java.util.Arrays.fill(dst, 0, n, (byte) idx.sharedSymbol);
+            } else {
+                idx.sharedTable.decode(sc.br, dst, n);
+            }
+            if (sc.br.overrun()) throw new IOException("truncated Huffman block " + k);
+        }
+        return n;
+    }
+
+    // Random access: decode only block k
+    public static byte[] readBlock(Path in, int k) throws IOException {
+        try (FileChannel ch = FileChannel.open(in, StandardOpenOption.READ)) {
+            Index idx = readIndex(ch);
+            if (k < 0 || k >= idx.blockCount()) throw new IndexOutOfBoundsException("block " + k);
+            byte[] dst = new byte[idx.blockSize];
+            int n = decodeBlock(ch, idx, k, dst, SCRATCH.get());
+            return java.util.Arrays.copyOf(dst, n);
+        }
+    }
+
+    public static void decompress(Path in, Path out) throws IOException {
+        try (FileChannel src = FileChannel.open(in, StandardOpenOption.READ);
+             FileChannel dst = FileChannel.open(out, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            Index idx = readIndex(src);
+            try {
+                ForkJoinPool.commonPool().invoke(new DecodeTask(src, dst, idx, 0, idx.blockCount()));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();     // I/O errors from worker tasks
+            }
+        }
+    }
+
+    // Decode blocks [from, to); every block writes to its own output position
+    static final class DecodeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final FileChannel src, dst;
+        final Index idx;
+        final int from, to;
+
+        DecodeTask(FileChannel src, FileChannel dst, Index idx, int from, int to) {
+            this.src = src;
+            this.dst = dst;
+            this.idx = idx;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (from >= to) return;     // empty file
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new DecodeTask(src, dst, idx, from, mid), new DecodeTask(src, dst, idx, mid, to));
+                return;
+            }
+            try {
+                Scratch sc = SCRATCH.get();
+                byte[] block = sc.block(idx.blockSize);
+                int n = decodeBlock(src, idx, from, block, sc);
+                writeFully(dst, ByteBuffer.wrap(block, 0, n), (long) from * idx.blockSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------ helpers
+
+    // Read block k of the source into buf; returns its length
+    static int readBlock(FileChannel src, long size, int blockSize, int k, byte[] buf) throws IOException {
+        long pos = (long) k * blockSize;
+        int n = (int) Math.min(blockSize, size - pos);
+        readFully(src, ByteBuffer.wrap(buf, 0, n), pos);
+        return n;
+    }
+
+    static void readFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            int r = ch.read(buf, pos);
+            if (r < 0) throw new EOFException();
+            pos += r;
+        }
+    }
+
+    static int writeFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+        int total = buf.remaining();
+        while (buf.hasRemaining())
+            pos += ch.write(buf, pos);
+        return total;
+    }
+
+    /*
+     * java HuffmanBlockCompressor -c <in> <out> [shared]
+     * java HuffmanBlockCompressor -d <in> <out>
+     * java HuffmanBlockCompressor -x <in> <k>        (print block k)
+     * java HuffmanBlockCompressor [MB]               (benchmark vs HuffmanEncoding streams)
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 3 && args[0].equals("-c")) {
+            compress(Paths.get(args[1]), Paths.get(args[2]), DEFAULT_BLOCK_SIZE,
+                    args.length > 3 && args[3].equals("shared"));
+            return;
+        }
+        if (args.length == 3 && args[0].equals("-d")) {
+            decompress(Paths.get(args[1]), Paths.get(args[2]));
+            return;
+        }
+        if (args.length == 3 && args[0].equals("-x")) {
+            System.out.write(readBlock(Paths.get(args[1]), Integer.parseInt(args[2])));
+            System.out.flush();
+            return;
+        }
+
+        // benchmark on sales_data_sample.csv repeated up to the requested size
+        long target = (args.length > 0 ? Long.parseLong(args[0]) : 128) << 20;
+        byte[] sample = Files.readAllBytes(Paths.get("sales_data_sample.csv"));
+        Path raw = Files.createTempFile("huffblk", ".csv");
+        Path packed = Files.createTempFile("huffblk", ".huf");
+        Path back = Files.createTempFile("huffblk", ".out");
+        try {
+            try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(raw), 1 << 16)) {
+                for (long w = 0; w < target; w += sample.length)
+                    os.write(sample);
+            }
+            long size = Files.size(raw);
+            System.out.printf("input %d MB, %d threads%n", size >> 20, ForkJoinPool.commonPool().getParallelism() + 1);
+
+            for (int round = 0; round < 2; round++) {       // round 0 = JIT warm-up
+                long t0 = System.nanoTime();
+                try (InputStream is = Files.newInputStream(raw); OutputStream os = Files.newOutputStream(packed)) {
+                    HuffmanEncoding.compress(is, os);
+                }
+                long t1 = System.nanoTime();
+                try (InputStream is = Files.newInputStream(packed); OutputStream os = Files.newOutputStream(back)) {
+                    HuffmanEncoding.decompress(is, os);
+                }
+                long t2 = System.nanoTime();
+                if (round == 1) report("stream (1 thread)", size, Files.size(packed), t1 - t0, t2 - t1);
+
+                for (boolean shared : new boolean[] {false, true}) {
+                    t0 = System.nanoTime();
+                    compress(raw, packed, DEFAULT_BLOCK_SIZE, shared);
+                    t1 = System.nanoTime();
+                    decompress(packed, back);
+                    t2 = System.nanoTime();
+                    if (Files.mismatch(raw, back) != -1) throw new IllegalStateException("round trip failed");
+                    if (round == 1)
+                        report(shared ? "blocks, shared table" : "blocks, per-block table", size, Files.size(packed), t1 - t0, t2 - t1);
+                }
+            }
+
+            int last = (int) ((size - 1) / DEFAULT_BLOCK_SIZE);
+            long t0 = System.nanoTime();
+            byte[] tail = readBlock(packed, last);
+            System.out.printf("random access to block %d: %d bytes in %.2f ms%n", last, tail.length, (System.nanoTime() - t0) / 1e6);
+        } finally {
+            Files.deleteIfExists(raw);
+            Files.deleteIfExists(packed);
+            Files.deleteIfExists(back);
+        }
+    }
+
+    private static void report(String label, long size, long packed, long compressNs, long decompressNs) {
+        System.out.printf("%-24s ratio %.2f%%  compress %7.1f MB/s  decompress %7.1f MB/s%n",
+                label, 100.0 * packed / size, size / 1e6 / (compressNs / 1e9), size / 1e6 / (decompressNs / 1e9));
+    }
+}
@@ -0,0 +1,221 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * ------------------ PRETRAINED / SHARED HUFFMAN DICTIONARIES ------------------
+ * For millions of tiny, similar records (e.g. one CSV row each) a per-message
+ * tree + header costs more than it saves. Instead:
+ *
+ *   1. train once on a sample corpus -> code lengths (every byte gets a
+ *      count of at least 1, so any record can still be encoded; codes are
+ *      capped at HuffmanTableDecoder.PRIMARY_BITS -> one lookup per symbol)
+ *   2. save it as a small file: magic, id, length table (~200 bytes)
+ *   3. load it into the process-wide cache, keyed by id
+ *   4. every message = varint id + varint length + codes
+ *
+ * No PriorityQueue, no tree and no table building happens per message; the
+ * codes and the decode table are built once per dictionary and shared by all
+ * threads (they are read-only after construction).
+ */
+public class HuffmanDictionary {
+
+    static final int MAGIC = 0x48554644;    // "HUFD"
+
+    // Process-wide cache of loaded dictionaries, by id
+    private static final ConcurrentHashMap<Integer, HuffmanDictionary> CACHE = new ConcurrentHashMap<>();
+
+    // Per-thread bit buffers so encode/decode allocate only the result
+    private static final ThreadLocal<HuffmanEncoding.BitWriter> WRITER =
+            ThreadLocal.withInitial(() -> new HuffmanEncoding.BitWriter(1 << 12));
+    private static final ThreadLocal<HuffmanEncoding.BitReader> READER =
+            ThreadLocal.withInitial(HuffmanEncoding.BitReader::new);
+
+    final int id;
+    final byte[] lens;
+    final int[] codes = new int[256];
+    final HuffmanTableDecoder table = new HuffmanTableDecoder();
+
+    HuffmanDictionary(int id, byte[] lens) {
+        this.id = id;
+        this.lens = lens;
+        HuffmanEncoding.canonicalCodes(lens, codes);
+        table.build(codes, lens);
+    }
+
+    // ---------------------------------------------------------------- training
+
+    public static HuffmanDictionary train(int id, Iterable<byte[]> samples) {
+        int[] freq = new int[256];
+        java.util.Arrays.fill(freq, 1);     // unseen bytes stay encodable
+        for (byte[] sample : samples) {
+            for (byte b : sample) {
+                if (freq[b & 0xFF] < Integer.MAX_VALUE) freq[b & 0xFF]++;
+            }
+        }
+        byte[] lens = new byte[256];
+        new HuffmanArrayBuilder(256).codeLengths(freq, lens, HuffmanTableDecoder.PRIMARY_BITS);
+        return new HuffmanDictionary(id, lens);
+    }
+
+    // -------------------------------------------------------------- persistence
+
+    public void save(Path file) throws IOException {
+        HuffmanEncoding.BitWriter bw = new HuffmanEncoding.BitWriter(256);
+        HuffmanEncoding.writeLengths(lens, bw);
+        bw.flushBits();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(id);
+            out.writeShort(bw.size());
+            bw.writeTo(out);
+        }
+    }
+
+    // Read a dictionary file and put it in the cache (replacing any entry with the same id)
+    public static HuffmanDictionary load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) throw new IOException("not a Huffman dictionary: " + file);
+            int id = in.readInt();
+            byte[] table = new byte[in.readUnsignedShort()];
+            in.readFully(table);
+            HuffmanEncoding.BitReader br = new HuffmanEncoding.BitReader();
+            br.reset(table, table.length);
+            byte[] lens = new byte[256];
+            if (HuffmanEncoding.readLengths(br, lens) != 256)
+                throw new IOException("dictionary must cover all 256 byte values: " + file);
+            HuffmanDictionary dict = new HuffmanDictionary(id, lens);
+            register(dict);
+            return dict;
+        }
+    }
+
+    // ------------------------------------------------------------------- cache
+
+    public static void register(HuffmanDictionary dict) {
+        CACHE.put(dict.id, dict);
+    }
+
+    public static HuffmanDictionary forId(int id) throws IOException {
+        HuffmanDictionary dict = CACHE.get(id);
+        if (dict == null) throw new IOException("unknown Huffman dictionary id " + id);
+        return dict;
+    }
+
+    static void clearCache() {
+        CACHE.clear();
+    }
+
+    // ---------------------------------------------------------------- messages
+
+    // message = varint id + varint length + codes (padded to a byte)
+    public byte[] encode(byte[] record) {
+        HuffmanEncoding.BitWriter bw = WRITER.get();
+        bw.reset();
+        writeVarint(bw, id);            // byte-aligned, so the whole message is built in one buffer
+        writeVarint(bw, record.length);
+        HuffmanEncoding.encodeSymbols(record, 0, record.length, codes, lens, bw);
+        bw.flushBits();
+        return bw.toByteArray();        // the only copy
+    }
+
+    // Decode a message made by any cached dictionary
+    public static byte[] decode(byte[] msg) throws IOException {
+        int[] pos = {0};
+        int id = getVarint(msg, pos);
+        int n = getVarint(msg, pos);
+        // Every symbol takes at least one bit: reject lengths the payload cannot hold before allocating
+        if (n < 0 || n > 8L * (msg.length - pos[0])) throw new IOException("corrupt dictionary message");
+        HuffmanDictionary dict = forId(id);
+
+        byte[] out = new byte[n];
+        HuffmanEncoding.BitReader br = READER.get();
+        br.reset(ByteBuffer.wrap(msg), pos[0], msg.length - pos[0]);
+        dict.table.decode(br, out, n);
+        if (br.overrun()) throw new IOException("truncated dictionary message");
+        return out;
+    }
+
+    static void writeVarint(HuffmanEncoding.BitWriter bw, int v) {
+        while ((v & ~0x7F) != 0) {
+            bw.writeBits((v & 0x7F) | 0x80, 8);
+            v >>>= 7;
+        }
+        bw.writeBits(v, 8);
+    }
+
+    static int getVarint(byte[] buf, int[] pos) throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (pos[0] >= buf.length) throw new IOException("truncated dictionary message");
+            int b = buf[pos[0]++];
+            v |= (b & 0x7F) << shift;
+            if (b >= 0) return v;
+        }
+        throw new IOException("corrupt varint");
+    }
+
+    /*
+     * Demo: train on the first half of Churn_Modelling.csv, save + reload the
+     * dictionary, then compress every row of the second half as its own
+     * message and compare with HuffmanEncoding.compress per row.
+     */
+    public static void main(String[] args) throws IOException {
+        String file = args.length > 0 ? args[0] : "Churn_Modelling.csv";
+        byte[] data = Files.readAllBytes(Paths.get(file));
+        List<byte[]> rows = new ArrayList<>();
+        for (int start = 0, i = 0; i < data.length; i++) {
+            if (data[i] == '\n' || i == data.length - 1) {
+                rows.add(java.util.Arrays.copyOfRange(data, start, i + 1));     // keep the newline
+                start = i + 1;
+            }
+        }
+        List<byte[]> train = rows.subList(0, rows.size() / 2);
+        List<byte[]> test = rows.subList(rows.size() / 2, rows.size());
+
+        Path dictFile = Files.createTempFile("huff", ".dict");
+        try {
+            train(7, train).save(dictFile);
+            clearCache();
+            HuffmanDictionary dict = load(dictFile);
+            System.out.printf("dictionary file: %d bytes%n", Files.size(dictFile));
+            try {
+                decode(new byte[]{7, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 0});     // n = 2^31 - 1
+                throw new IllegalStateException("hostile length header was accepted");
+            } catch (IOException expected) {
+                // rejected before allocating 2 GB
+            }
+
+            long raw = 0, perMessage = 0, withDict = 0;
+            for (byte[] row : test) {
+                raw += row.length;
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                HuffmanEncoding.compress(new ByteArrayInputStream(row), bos);
+                perMessage += bos.size();
+                byte[] msg = dict.encode(row);
+                withDict += msg.length;
+                if (!java.util.Arrays.equals(row, decode(msg)))
+                    throw new IllegalStateException("round trip failed");
+            }
+            System.out.printf("%d rows, %d bytes raw%n", test.size(), raw);
+            System.out.printf("per-message tree:   %8d bytes (%.1f%%)%n", perMessage, 100.0 * perMessage / raw);
+            System.out.printf("shared dictionary:  %8d bytes (%.1f%%)%n", withDict, 100.0 * withDict / raw);
+
+            for (int round = 0; round < 2; round++) {       // round 0 = JIT warm-up
+                long t0 = System.nanoTime();
+                for (int r = 0; r < 20; r++) {
+                    for (byte[] row : test)
+                        decode(dict.encode(row));
+                }
+                long ns = System.nanoTime() - t0;
+                if (round == 1)
+                    System.out.printf("encode + decode: %.0f ns per row%n", (double) ns / (20 * test.size()));
+            }
+        } finally {
+            Files.deleteIfExists(dictFile);
+        }
+    }
+}
@@ -1,3 +1,7 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.util.PriorityQueue;
 import java.util.Comparator;
 
@@ -24,6 +28,205 @@ class Node {
 
 public class HuffmanEncoding {
 
+    /*
+     * ------------------ STREAMING COMPRESSOR ------------------
+     * Input is cut into blocks of BLOCK_SIZE bytes. Every block gets its own
+     * Huffman code (same greedy merging as main, done on primitive arrays by
+     * HuffmanArrayBuilder), so memory stays bounded no matter how big the
+     * file is.
+     *
+     * Compressed format (all ints big-endian):
+     *   block := rawLen:int payloadLen:int payload[payloadLen]
+     *   end   := int 0
+     *   payload = code length table (see writeLengths, a few dozen bytes)
+     *             followed by the canonical codes, padded to a byte
+     *
+     * Time:  O(n) per byte + O(k log k) per block (k = distinct bytes)
+     * Space: O(BLOCK_SIZE)
+     */
+
+    // 1 MiB blocks keep memory bounded and codes shorter than 32 bits
+    // (a depth-32 tree needs more than Fib(33) > 2^21 symbols)
+    static final int BLOCK_SIZE = 1 << 20;
+
+    // Longest code the 5-bit length field can carry
+    static final int MAX_CODE_LENGTH = 31;
+
+    // Largest length table: group mask, 16 symbol masks, 256 5-bit lengths
+    static final int MAX_TABLE_BYTES = (16 + 16 * 16 + 256 * 5 + 7) / 8;
+
+    // Most payload bytes a block of rawLen symbols can need; larger headers are corrupt
+    static long maxPayload(int rawLen) {
+        return MAX_TABLE_BYTES + ((long) rawLen * MAX_CODE_LENGTH + 7) / 8;
+    }
+
+    // Bits are packed MSB first into a growable byte[] (one block at a time),
+    // or straight into a ByteBuffer such as a mapped output file
+    static final class BitWriter {
+        private byte[] buf;
+        private int pos;        // bytes already completed in buf
+        private long acc;       // pending bits (low nbits bits are valid)
+        private int nbits;      // number of pending bits
+        private ByteBuffer target;      // when set, bytes go here instead of buf
+        private int targetStart;
+
+        BitWriter(int capacity) {
+            buf = new byte[Math.max(capacity, 16)];
+        }
+
+        // Write into target from its current position (it must have room)
+        BitWriter(ByteBuffer target) {
+            this.target = target;
+            this.targetStart = target.position();
+        }
+
+        // Append the low 'count' bits of value (count <= 32)
+        void writeBits(int value, int count) {
+            acc = (acc << count) | (value & ((1L << count) - 1));
+            nbits += count;
+            if (nbits >= 32) {
+                nbits -= 32;
+                int word = (int) (acc >>> nbits);
+                if (target != null) {
+                    target.putInt(word);
+                    return;
+                }
+                ensure(4);
+                buf[pos]     = (byte) (word >>> 24);
+                buf[pos + 1] = (byte) (word >>> 16);
+                buf[pos + 2] = (byte) (word >>> 8);
+                buf[pos + 3] = (byte) word;
+                pos += 4;
+            }
+        }
+
+        // Pad the last partial byte with zeros
+        void flushBits() {
+            if (target != null) {
+                while (nbits >= 8) {
+                    nbits -= 8;
+                    target.put((byte) (acc >>> nbits));
+                }
+                if (nbits > 0)
+                    target.put((byte) (acc << (8 - nbits)));
+            } else {
+                ensure(8);
+                while (nbits >= 8) {
+                    nbits -= 8;
+                    buf[pos++] = (byte) (acc >>> nbits);
+                }
+                if (nbits > 0)
+                    buf[pos++] = (byte) (acc << (8 - nbits));
+            }
+            nbits = 0;
+            acc = 0;
+        }
+
+        int size() {
+            return target != null ? target.position() - targetStart : pos;
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            out.write(buf, 0, pos);
+        }
+
+        // Hand completed bytes to out, keep the pending partial byte (stream use)
+        void drainTo(OutputStream out) throws IOException {
+            out.write(buf, 0, pos);
+            pos = 0;
+        }
+
+        byte[] toByteArray() {
+            return java.util.Arrays.copyOf(buf, pos);
+        }
+
+        void reset() {
+            pos = 0;
+            acc = 0;
+            nbits = 0;
+        }
+
+        private void ensure(int n) {
+            if (pos + n > buf.length)
+                buf = java.util.Arrays.copyOf(buf, Math.max(buf.length * 2, pos + n));
+        }
+    }
+
+    // Reads bits MSB first from a byte[] or ByteBuffer; reading past the end yields zeros
+    static final class BitReader {
+        private byte[] buf;
+        private ByteBuffer src;         // used instead of buf when set
+        private int pos, start, limit;
+        private long acc;       // valid bits are left-aligned (top nbits bits)
+        private int nbits;
+        private long fed;       // bytes shifted into acc, including zero padding
+
+        void reset(byte[] buf, int limit) {
+            this.buf = buf;
+            this.src = null;
+            this.pos = 0;
+            this.start = 0;
+            this.limit = limit;
+            this.acc = 0;
+            this.nbits = 0;
+            this.fed = 0;
+        }
+
+        // Read src[offset, offset+length) without copying it
+        void reset(ByteBuffer src, int offset, int length) {
+            reset((byte[]) null, offset + length);
+            this.src = src;
+            this.pos = offset;
+            this.start = offset;
+        }
+
+        // Top up acc to at least 57 valid bits
+        void refill() {
+            while (nbits <= 56) {
+                int b = 0;
+                if (pos < limit)
+                    b = (src != null ? src.get(pos++) : buf[pos++]) & 0xFF;
+                acc |= (long) b << (56 - nbits);
+                nbits += 8;
+                fed++;
+            }
+        }
+
+        int readBit() {
+            if (nbits == 0) refill();
+            int bit = (int) (acc >>> 63);
+            acc <<= 1;
+            nbits--;
+            return bit;
+        }
+
+        // Read 'count' bits (1..32) as an unsigned value
+        int readBits(int count) {
+            if (nbits < count) refill();
+            int v = (int) (acc >>> (64 - count));
+            acc <<= count;
+            nbits -= count;
+            return v;
+        }
+
+        // Look at the next 'count' bits (1..32) without consuming them
+        int peekBits(int count) {
+            if (nbits < count) refill();
+            return (int) (acc >>> (64 - count));
+        }
+
+        // Drop bits already looked at with peekBits
+        void skipBits(int count) {
+            acc <<= count;
+            nbits -= count;
+        }
+
+        // True if more bits were consumed than the payload holds (corrupt/truncated input)
+        boolean overrun() {
+            return fed * 8 - nbits > (long) (limit - start) * 8;
+        }
+    }
+
     // Recursive function to print Huffman Codes
     public static void printCodes(Node root, String code) {
         if (root == null) return;
@@ -38,7 +241,300 @@ public class HuffmanEncoding {
         printCodes(root.right, code + "1");
     }
 
-    public static void main(String[] args) {
+    // Build the Huffman tree for byte frequencies (same greedy steps as main)
+    static Node buildTree(int[] freq) {
+        PriorityQueue<Node> pq = new PriorityQueue<>(Comparator.comparingInt(n -> n.freq));
+        for (int s = 0; s < freq.length; s++) {
+            if (freq[s] > 0)
+                pq.add(new Node((char) s, freq[s]));
+        }
+        while (pq.size() > 1) {
+            Node left = pq.poll();
+            Node right = pq.poll();
+            pq.add(new Node(left.freq + right.freq, left, right));
+        }
+        return pq.poll();
+    }
+
+    // Code length of every symbol = depth of its leaf (a lone symbol still gets 1 bit)
+    static void codeLengths(Node root, int depth, byte[] lens) {
+        if (root.left == null && root.right == null) {
+            lens[root.ch] = (byte) Math.max(depth, 1);
+            return;
+        }
+        codeLengths(root.left, depth + 1, lens);
+        codeLengths(root.right, depth + 1, lens);
+    }
+
+    /*
+     * Canonical Huffman codes: only the lengths matter. Shorter codes come
+     * first, equal lengths are numbered in symbol order, so encoder and
+     * decoder get identical codes from the length table alone (no matter
+     * how the PriorityQueue broke ties).
+     */
+    static void canonicalCodes(byte[] lens, int[] codes) {
+        int[] count = new int[MAX_CODE_LENGTH + 1];
+        int[] next = new int[MAX_CODE_LENGTH + 1];
+        for (int s = 0; s < lens.length; s++)
+            count[lens[s]]++;
+        count[0] = 0;
+
+        int code = 0;
+        for (int len = 1; len <= MAX_CODE_LENGTH; len++) {
+            code = (code + count[len - 1]) << 1;
+            next[len] = code;
+        }
+        for (int s = 0; s < lens.length; s++) {
+            if (lens[s] != 0)
+                codes[s] = next[lens[s]]++;
+        }
+    }
+
+    // Header = length table: 16-bit group mask, 16-bit symbol mask per used group, 5 bits per used symbol
+    static void writeLengths(byte[] lens, BitWriter bw) {
+        int groups = 0;
+        for (int s = 0; s < 256; s++) {
+            if (lens[s] != 0)
+                groups |= 1 << (s >>> 4);
+        }
+        bw.writeBits(groups, 16);
+        for (int g = 0; g < 16; g++) {
+            if ((groups & (1 << g)) == 0) continue;
+            int mask = 0;
+            for (int k = 0; k < 16; k++) {
+                if (lens[(g << 4) + k] != 0)
+                    mask |= 1 << k;
+            }
+            bw.writeBits(mask, 16);
+        }
+        for (int s = 0; s < 256; s++) {
+            if (lens[s] != 0)
+                bw.writeBits(lens[s], 5);
+        }
+    }
+
+    // Size in bits of what writeLengths writes
+    static int lengthTableBits(byte[] lens) {
+        int groups = 0, used = 0;
+        for (int s = 0; s < 256; s++) {
+            if (lens[s] != 0) {
+                groups |= 1 << (s >>> 4);
+                used++;
+            }
+        }
+        return 16 + 16 * Integer.bitCount(groups) + 5 * used;
+    }
+
+    // Inverse of writeLengths; returns the number of symbols in use
+    static int readLengths(BitReader br, byte[] lens) throws IOException {
+        java.util.Arrays.fill(lens, (byte) 0);
+        int groups = br.readBits(16);
+        int used = 0;
+        for (int g = 0; g < 16; g++) {
+            if ((groups & (1 << g)) == 0) continue;
+            int mask = br.readBits(16);
+            for (int k = 0; k < 16; k++) {
+                if ((mask & (1 << k)) != 0) {
+                    lens[(g << 4) + k] = 1;     // mark, real length read below
+                    used++;
+                }
+            }
+        }
+        if (used == 0) throw new IOException("empty Huffman length table");
+        long kraft = 0;     // sum of 2^-len scaled by 2^MAX_CODE_LENGTH, must not exceed 1
+        for (int s = 0; s < 256; s++) {
+            if (lens[s] == 0) continue;
+            lens[s] = (byte) br.readBits(5);
+            if (lens[s] == 0) throw new IOException("corrupt Huffman length table");
+            kraft += 1L << (MAX_CODE_LENGTH - lens[s]);
+        }
+        if (kraft > 1L << MAX_CODE_LENGTH) throw new IOException("corrupt Huffman length table");
+        return used;
+    }
+
+    // Encode src[0..n) as one block payload (length table + codes) into bw
+    static void encodeBlock(byte[] src, int n, BitWriter bw) {
+        encodeBlock(src, n, bw, new HuffmanArrayBuilder(256), MAX_CODE_LENGTH);
+    }
+
+    // Same, reusing the builder's arrays between blocks; codes are at most maxLen bits
+    static void encodeBlock(byte[] src, int n, BitWriter bw, HuffmanArrayBuilder builder, int maxLen) {
+        int[] freq = new int[256];
+        for (int i = 0; i < n; i++)
+            freq[src[i] & 0xFF]++;
+
+        int[] codes = new int[256];
+        byte[] lens = new byte[256];
+        builder.codeLengths(freq, lens, maxLen);
+        canonicalCodes(lens, codes);
+
+        writeLengths(lens, bw);
+        if (!singleSymbol(freq))        // a lone symbol needs no code bits at all
+            encodeSymbols(src, 0, n, codes, lens, bw);
+        bw.flushBits();
+    }
+
+    // Write the code of every byte in src[off, off+n)
+    static void encodeSymbols(byte[] src, int off, int n, int[] codes, byte[] lens, BitWriter bw) {
+        for (int i = off; i < off + n; i++) {
+            int s = src[i] & 0xFF;
+            bw.writeBits(codes[s], lens[s]);
+        }
+    }
+
+    static boolean singleSymbol(int[] freq) {
+        int used = 0;
+        for (int f : freq) {
+            if (f != 0) used++;
+        }
+        return used == 1;
+    }
+
+    // Same test on a code length table: exactly one symbol has a code
+    static boolean singleSymbol(byte[] lens) {
+        int used = 0;
+        for (byte l : lens) {
+            if (l != 0) used++;
+        }
+        return used == 1;
+    }
+
+    // Decode rawLen symbols of one block payload into dst using lookup tables
+    static void decodeBlock(BitReader br, byte[] dst, int rawLen, HuffmanTableDecoder table) throws IOException {
+        byte[] lens = table.lens;
+        if (readLengths(br, lens) == 1) {
+            int s = 0;
+            while (lens[s] == 0) s++;
+            java.util.Arrays.fill(dst, 0, rawLen, (byte) s);
+        } else {
+            canonicalCodes(lens, table.codes);
+            table.build(table.codes, lens);
+            table.decode(br, dst, rawLen);
+        }
+        if (br.overrun()) throw new IOException("truncated Huffman block");
+    }
+
+    // Rebuild a Node tree from the codes (only used by the tree-walk baseline)
+    static Node treeFromCodes(int[] codes, byte[] lens) {
+        Node root = new Node(0, null, null);
+        for (int s = 0; s < lens.length; s++) {
+            Node n = root;
+            for (int b = lens[s] - 1; b >= 0; b--) {
+                boolean right = ((codes[s] >>> b) & 1) != 0;
+                Node child = right ? n.right : n.left;
+                if (child == null) {
+                    child = b == 0 ? new Node((char) s, 0) : new Node(0, null, null);
+                    if (right) n.right = child;
+                    else n.left = child;
+                }
+                n = child;
+            }
+        }
+        return root;
+    }
+
+    // Plain decoder: walk the tree one bit at a time (kept as the baseline for benchmarks)
+    static void decodeBlockTreeWalk(BitReader br, byte[] dst, int rawLen) throws IOException {
+        byte[] lens = new byte[256];
+        int[] codes = new int[256];
+        int used = readLengths(br, lens);
+        canonicalCodes(lens, codes);
+        Node root = treeFromCodes(codes, lens);
+        for (int i = 0; i < rawLen; i++) {
+            Node n = root;
+            if (used == 1) {
+                n = n.left;             // lone symbol: code "0" is never written
+            } else {
+                while (n.left != null || n.right != null)
+                    n = br.readBit() == 0 ? n.left : n.right;
+            }
+            dst[i] = (byte) n.ch;
+        }
+        if (br.overrun()) throw new IOException("truncated Huffman block");
+    }
+
+    // Compress everything from in to out; only one block is held in memory at a time
+    public static void compress(InputStream in, OutputStream out) throws IOException {
+        compress(in, out, MAX_CODE_LENGTH);
+    }
+
+    /*
+     * Same, but no code is longer than maxCodeLength bits (8..31). With a cap
+     * of HuffmanTableDecoder.PRIMARY_BITS every symbol decodes in one lookup,
+     * for a ratio cost of usually well under 1% (see HuffmanArrayBuilder).
+     */
+    public static void compress(InputStream in, OutputStream out, int maxCodeLength) throws IOException {
+        if (maxCodeLength < 8 || maxCodeLength > MAX_CODE_LENGTH)
+            throw new IllegalArgumentException("maxCodeLength must be 8.." + MAX_CODE_LENGTH);
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        byte[] block = new byte[BLOCK_SIZE];
+        BitWriter bw = new BitWriter(BLOCK_SIZE);
+        HuffmanArrayBuilder builder = new HuffmanArrayBuilder(256);
+        int n;
+        while ((n = in.readNBytes(block, 0, BLOCK_SIZE)) > 0) {
+            encodeBlock(block, n, bw, builder, maxCodeLength);
+            dos.writeInt(n);
+            dos.writeInt(bw.size());
+            bw.writeTo(dos);
+            bw.reset();
+        }
+        dos.writeInt(0);    // end marker
+        dos.flush();
+    }
+
+    public static void compress(ReadableByteChannel in, OutputStream out) throws IOException {
+        compress(Channels.newInputStream(in), out);
+    }
+
+    public static void decompress(InputStream in, OutputStream out) throws IOException {
+        DataInputStream dis = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+        byte[] block = new byte[BLOCK_SIZE];
+        byte[] payload = new byte[BLOCK_SIZE];
+        BitReader br = new BitReader();
+        HuffmanTableDecoder table = new HuffmanTableDecoder();
+        while (true) {
+            int rawLen = dis.readInt();
+            if (rawLen == 0) break;     // end marker
+            int payloadLen = dis.readInt();
+            if (rawLen < 0 || rawLen > BLOCK_SIZE || payloadLen < 0 || payloadLen > maxPayload(rawLen))
+                throw new IOException("corrupt block header");
+            if (payloadLen > payload.length)
+                payload = new byte[payloadLen];
+            dis.readFully(payload, 0, payloadLen);
+
+            br.reset(payload, payloadLen);
+            decodeBlock(br, block, rawLen, table);
+            out.write(block, 0, rawLen);
+        }
+        out.flush();
+    }
+
+    public static void decompress(ReadableByteChannel in, OutputStream out) throws IOException {
+        decompress(Channels.newInputStream(in), out);
+    }
+
+    // java HuffmanEncoding -c <in> <out> [maxCodeLength]   |   java HuffmanEncoding -d <in> <out>
+    static void runFile(String mode, String inFile, String outFile, int maxCodeLength) throws IOException {
+        long start = System.nanoTime();
+        try (InputStream in = new FileInputStream(inFile);
+             OutputStream out = new FileOutputStream(outFile)) {
+            if (mode.equals("-c")) compress(in, out, maxCodeLength);
+            else decompress(in, out);
+        }
+        double sec = (System.nanoTime() - start) / 1e9;
+        long inSize = new File(inFile).length();
+        long outSize = new File(outFile).length();
+        System.out.printf("%s -> %s : %d -> %d bytes (%.2f%%), %.1f MB/s%n",
+                inFile, outFile, inSize, outSize, 100.0 * outSize / Math.max(inSize, 1),
+                inSize / 1e6 / sec);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 3 && (args[0].equals("-c") || args[0].equals("-d"))) {
+            runFile(args[0], args[1], args[2], args.length > 3 ? Integer.parseInt(args[3]) : MAX_CODE_LENGTH);
+            return;
+        }
+
         char[] chars = {'A', 'B', 'C', 'D', 'E'};
         int[] freq   = {  5,   9,  12,  13, 16};
 
@@ -63,9 +559,21 @@ public class HuffmanEncoding {
 
         System.out.println("Huffman Codes:");
         printCodes(root, "");
+
+        // Same lengths, canonical numbering (what the compressor actually writes)
+        byte[] lens = new byte[256];
+        int[] codes = new int[256];
+        codeLengths(root, 0, lens);
+        canonicalCodes(lens, codes);
+        System.out.println("Canonical Codes:");
+        for (char c : chars) {
+            String bits = Integer.toBinaryString(codes[c] | (1 << lens[c])).substring(1);
+            System.out.println(c + " : " + bits);
+        }
     }
 }
 
+
 /* 
 
 Below is a **complete, simple, and in-depth explanation** of the Huffman Encoding code I provided earlier.
@@ -273,4 +781,4 @@ Would you like:
 
 A) A Java version that **encodes and decodes a full string**?
 B) A **diagram of the Huffman tree** for the above example?
-*/
\ No newline at end of file
+*/
\ No newline at end of file
@@ -0,0 +1,251 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+/*
+ * ------------------ MEMORY-MAPPED FILE MODE ------------------
+ * File-to-file versions of HuffmanEncoding.compress / decompress that never
+ * copy the data through heap byte[] buffers or stream layers:
+ *
+ *   compress   pass 1: count each block's frequencies straight from the
+ *                      mapped input, build its code and compute the exact
+ *                      payload size (length table + sum of freq * len)
+ *              pass 2: map the output at its final size and write the
+ *                      codes directly into it
+ *   decompress pass 1: walk the block headers to get the total raw size
+ *              pass 2: map the output and decode every block into it
+ *
+ * The output format is exactly the one HuffmanEncoding writes, so both
+ * paths can read each other's files.
+ *
+ * A MappedByteBuffer holds at most 2 GB, so big files are mapped in
+ * windows of up to WINDOW bytes, moved forward as the work advances.
+ */
+public class HuffmanMappedFile {
+
+    // Largest region mapped at once (a multiple of BLOCK_SIZE, so input blocks never straddle two windows)
+    static final long WINDOW = 1L << 30;
+
+    // One mapped window of a file, remapped when a range falls outside it
+    static final class Window {
+        final FileChannel ch;
+        final FileChannel.MapMode mode;
+        final long fileSize;
+        MappedByteBuffer buf;
+        long base;
+
+        Window(FileChannel ch, FileChannel.MapMode mode, long fileSize) {
+            this.ch = ch;
+            this.mode = mode;
+            this.fileSize = fileSize;
+        }
+
+        // Make [pos, pos+len) visible and return the index of pos inside buf
+        int at(long pos, int len) throws IOException {
+            if (buf == null || pos < base || pos + len > base + buf.capacity()) {
+                long size = Math.min(Math.max(WINDOW, len), fileSize - pos);
+                if (size < len) throw new EOFException("range past end of file");
+                buf = ch.map(mode, pos, size);
+                base = pos;
+            }
+            return (int) (pos - base);
+        }
+    }
+
+    public static void compress(Path in, Path out) throws IOException {
+        compress(in, out, HuffmanEncoding.MAX_CODE_LENGTH);
+    }
+
+    public static void compress(Path in, Path out, int maxCodeLength) throws IOException {
+        final int bs = HuffmanEncoding.BLOCK_SIZE;
+        try (FileChannel src = FileChannel.open(in, StandardOpenOption.READ);
+             FileChannel dst = FileChannel.open(out, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = src.size();
+            int blocks = (int) ((size + bs - 1) / bs);
+            Window input = new Window(src, FileChannel.MapMode.READ_ONLY, size);
+
+            //pass 1: frequencies -> code lengths -> exact payload size of every block
+            byte[] allLens = new byte[blocks * 256];
+            int[] payloadLen = new int[blocks];
+            int[] freq = new int[256];
+            byte[] lens = new byte[256];
+            HuffmanArrayBuilder builder = new HuffmanArrayBuilder(256);
+            long total = 4;     // end marker
+            for (int k = 0; k < blocks; k++) {
+                int n = (int) Math.min(bs, size - (long) k * bs);
+                int at = input.at((long) k * bs, n);
+                MappedByteBuffer b = input.buf;
+                java.util.Arrays.fill(freq, 0);
+                for (int i = at; i < at + n; i++)
+                    freq[b.get(i) & 0xFF]++;
+
+                builder.codeLengths(freq, lens, maxCodeLength);
+                System.arraycopy(lens, 0, allLens, k * 256, 256);
+                long bits = HuffmanEncoding.lengthTableBits(lens);
+                if (!HuffmanEncoding.singleSymbol(freq)) {
+                    for (int s = 0; s < 256; s++)
+                        bits += (long) freq[s] * lens[s];
+                }
+                payloadLen[k] = (int) ((bits + 7) / 8);
+                total += 8 + payloadLen[k];
+            }
+
+            //pass 2: map the output at its final size and encode into it
+            Window output = new Window(dst, FileChannel.MapMode.READ_WRITE, total);
+            int[] codes = new int[256];
+            long outPos = 0;
+            for (int k = 0; k < blocks; k++) {
+                int n = (int) Math.min(bs, size - (long) k * bs);
+                System.arraycopy(allLens, k * 256, lens, 0, 256);
+                HuffmanEncoding.canonicalCodes(lens, codes);
+
+                int o = output.at(outPos, 8 + payloadLen[k]);
+                MappedByteBuffer ob = output.buf;
+                ob.putInt(o, n);
+                ob.putInt(o + 4, payloadLen[k]);
+                ob.position(o + 8);
+                HuffmanEncoding.BitWriter bw = new HuffmanEncoding.BitWriter(ob);
+                HuffmanEncoding.writeLengths(lens, bw);
+
+                int at = input.at((long) k * bs, n);
+                MappedByteBuffer b = input.buf;
+                if (!HuffmanEncoding.singleSymbol(lens)) {
+                    for (int i = at; i < at + n; i++) {
+                        int s = b.get(i) & 0xFF;
+                        bw.writeBits(codes[s], lens[s]);
+                    }
+                }
+                bw.flushBits();
+                if (bw.size() != payloadLen[k])
+                    throw new IllegalStateException("block " + k + " size mismatch");
+                outPos += 8 + payloadLen[k];
+            }
+            int o = output.at(outPos, 4);
+            output.buf.putInt(o, 0);
+        }
+    }
+
+    public static void decompress(Path in, Path out) throws IOException {
+        try (FileChannel src = FileChannel.open(in, StandardOpenOption.READ);
+             FileChannel dst = FileChannel.open(out, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = src.size();
+            Window input = new Window(src, FileChannel.MapMode.READ_ONLY, size);
+
+            //pass 1: walk the block headers for the total output size
+            long pos = 0, rawTotal = 0;
+            while (true) {
+                int at = input.at(pos, 4);
+                int rawLen = input.buf.getInt(at);
+                if (rawLen == 0) break;
+                at = input.at(pos, 8);
+                int payloadLen = input.buf.getInt(at + 4);
+                if (rawLen < 0 || rawLen > HuffmanEncoding.BLOCK_SIZE || payloadLen < 0)
+                    throw new IOException("corrupt block header");
+                rawTotal += rawLen;
+                pos += 8 + payloadLen;
+            }
+
+            //pass 2: decode every block straight into the mapped output
+            Window output = new Window(dst, FileChannel.MapMode.READ_WRITE, rawTotal);
+            HuffmanEncoding.BitReader br = new HuffmanEncoding.BitReader();
+            HuffmanTableDecoder table = new HuffmanTableDecoder();
+            long outPos = 0;
+            pos = 0;
+            while (outPos < rawTotal) {
+                int at = input.at(pos, 8);
+                int rawLen = input.buf.getInt(at);
+                int payloadLen = input.buf.getInt(at + 4);
+                at = input.at(pos + 8, payloadLen);
+                br.reset(input.buf, at, payloadLen);
+                int o = output.at(outPos, rawLen);
+                decodeBlock(br, output.buf, o, rawLen, table);
+                pos += 8 + payloadLen;
+                outPos += rawLen;
+            }
+        }
+    }
+
+    // HuffmanEncoding.decodeBlock, writing into a ByteBuffer instead of a byte[]
+    static void decodeBlock(HuffmanEncoding.BitReader br, ByteBuffer dst, int at, int rawLen,
+                            HuffmanTableDecoder table) throws IOException {
+        byte[] lens = table.lens;
+        if (HuffmanEncoding.readLengths(br, lens) == 1) {
+            int s = 0;
+            while (lens[s] == 0) s++;
+            for (int i = at; i < at + rawLen; i++)
+                dst.put(i, (byte) s);
+        } else {
+            HuffmanEncoding.canonicalCodes(lens, table.codes);
+            table.build(table.codes, lens);
+            table.decode(br, dst, at, rawLen);
+        }
+        if (br.overrun()) throw new IOException("truncated Huffman block");
+    }
+
+    /*
+     * java HuffmanMappedFile -c <in> <out>  |  -d <in> <out>
+     * java HuffmanMappedFile [MB]   benchmark: sales_data_sample.csv scaled up to MB
+     *                               (default 512; pass e.g. 4096 for 4 GB)
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && args[0].equals("-c")) {
+            compress(Paths.get(args[1]), Paths.get(args[2]));
+            return;
+        }
+        if (args.length == 3 && args[0].equals("-d")) {
+            decompress(Paths.get(args[1]), Paths.get(args[2]));
+            return;
+        }
+
+        long target = (args.length > 0 ? Long.parseLong(args[0]) : 512) << 20;
+        byte[] sample = Files.readAllBytes(Paths.get("sales_data_sample.csv"));
+        Path raw = Files.createTempFile("huffmap", ".csv");
+        Path viaStream = Files.createTempFile("huffmap", ".huf");
+        Path viaMap = Files.createTempFile("huffmap", ".huf");
+        Path back = Files.createTempFile("huffmap", ".out");
+        try {
+            try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(raw), 1 << 16)) {
+                for (long w = 0; w < target; w += sample.length)
+                    os.write(sample);
+            }
+            long size = Files.size(raw);
+            System.out.printf("input %d MB%n", size >> 20);
+
+            for (int round = 0; round < 2; round++) {       // round 0 = JIT warm-up
+                long t0 = System.nanoTime();
+                try (InputStream is = new FileInputStream(raw.toFile());
+                     OutputStream os = new FileOutputStream(viaStream.toFile())) {
+                    HuffmanEncoding.compress(is, os);
+                }
+                long t1 = System.nanoTime();
+                try (InputStream is = new FileInputStream(viaStream.toFile());
+                     OutputStream os = new FileOutputStream(back.toFile())) {
+                    HuffmanEncoding.decompress(is, os);
+                }
+                long t2 = System.nanoTime();
+                compress(raw, viaMap);
+                long t3 = System.nanoTime();
+                decompress(viaMap, back);
+                long t4 = System.nanoTime();
+
+                if (Files.mismatch(viaStream, viaMap) != -1) throw new IllegalStateException("outputs differ");
+                if (Files.mismatch(raw, back) != -1) throw new IllegalStateException("round trip failed");
+                if (round == 1) {
+                    System.out.printf("stream  compress %7.1f MB/s  decompress %7.1f MB/s%n",
+                            size / 1e6 / ((t1 - t0) / 1e9), size / 1e6 / ((t2 - t1) / 1e9));
+                    System.out.printf("mapped  compress %7.1f MB/s  decompress %7.1f MB/s%n",
+                            size / 1e6 / ((t3 - t2) / 1e9), size / 1e6 / ((t4 - t3) / 1e9));
+                }
+            }
+        } finally {
+            Files.deleteIfExists(raw);
+            Files.deleteIfExists(viaStream);
+            Files.deleteIfExists(viaMap);
+            Files.deleteIfExists(back);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * ------------------ TABLE-DRIVEN HUFFMAN DECODER ------------------
+ * Instead of walking Node.left / Node.right one bit at a time, we look at
+ * the next PRIMARY_BITS bits at once and read the answer from a table.
+ *
+ *   primary[next 12 bits]  -> (symbol, code length)        if length <= 12
+ *                          -> (subtable offset, sub bits)  if length  > 12
+ *   secondary[offset + next sub bits] -> (symbol, code length)
+ *
+ * Entry layout (int):
+ *   > 0 : symbol << 8 | length
+ *   < 0 : 0x80000000 | offset << 5 | subBits
+ *   = 0 : no code starts with these bits (corrupt input)
+ *
+ * Time:  O(1) table lookups per symbol (one, or two for rare long codes;
+ *        always one when the compressor caps codes at PRIMARY_BITS)
+ * Space: O(2^PRIMARY_BITS + sum of subtable sizes), reused between blocks
+ */
+public class HuffmanTableDecoder {
+
+    static final int PRIMARY_BITS = 12;
+
+    private final int[] primary = new int[1 << PRIMARY_BITS];
+    private final int[] subBits = new int[1 << PRIMARY_BITS];   // bits needed by each subtable
+    private int[] secondary = new int[1 << 8];
+
+    // Scratch length/code tables for callers, so no per-block or per-code allocation
+    final byte[] lens = new byte[256];
+    final int[] codes = new int[256];
+
+    // Build both tables from per-symbol codes and lengths (length 0 = symbol unused)
+    public void build(int[] codes, byte[] lens) {
+        java.util.Arrays.fill(primary, 0);
+        java.util.Arrays.fill(subBits, 0);
+
+        // step 1: short codes go straight into primary, long codes only size their subtable
+        for (int s = 0; s < lens.length; s++) {
+            int len = lens[s];
+            if (len == 0) continue;
+            int code = codes[s];
+            if (len <= PRIMARY_BITS) {
+                int first = code << (PRIMARY_BITS - len);
+                int count = 1 << (PRIMARY_BITS - len);
+                int entry = (s << 8) | len;
+                for (int k = 0; k < count; k++)
+                    primary[first + k] = entry;
+            } else {
+                int prefix = code >>> (len - PRIMARY_BITS);
+                subBits[prefix] = Math.max(subBits[prefix], len - PRIMARY_BITS);
+            }
+        }
+
+        // step 2: lay out subtables one after another in secondary[]
+        int offset = 0;
+        for (int p = 0; p < primary.length; p++) {
+            if (subBits[p] == 0) continue;
+            primary[p] = 0x80000000 | (offset << 5) | subBits[p];
+            offset += 1 << subBits[p];
+        }
+        if (secondary.length < offset)
+            secondary = new int[offset];
+        java.util.Arrays.fill(secondary, 0, offset, 0);
+
+        // step 3: fill subtables with the long codes
+        for (int s = 0; s < lens.length; s++) {
+            int len = lens[s];
+            if (len <= PRIMARY_BITS) continue;
+            int code = codes[s];
+            int rest = len - PRIMARY_BITS;
+            int prefix = code >>> rest;
+            int sb = subBits[prefix];
+            int base = ((primary[prefix] >>> 5) & 0x3FFFFFF) + ((code & ((1 << rest) - 1)) << (sb - rest));
+            int count = 1 << (sb - rest);
+            int entry = (s << 8) | len;
+            for (int k = 0; k < count; k++)
+                secondary[base + k] = entry;
+        }
+    }
+
+    // Decode one symbol, consuming exactly its code length
+    public int decodeSymbol(HuffmanEncoding.BitReader br) throws IOException {
+        int e = primary[br.peekBits(PRIMARY_BITS)];
+        if (e > 0) {
+            br.skipBits(e & 0xFF);
+            return e >>> 8;
+        }
+        if (e == 0) throw new IOException("invalid Huffman code");
+
+        // long code: drop the primary bits and look in the subtable
+        br.skipBits(PRIMARY_BITS);
+        int e2 = secondary[((e >>> 5) & 0x3FFFFFF) + br.peekBits(e & 31)];
+        if (e2 == 0) throw new IOException("invalid Huffman code");
+        br.skipBits((e2 & 0xFF) - PRIMARY_BITS);
+        return e2 >>> 8;
+    }
+
+    public void decode(HuffmanEncoding.BitReader br, byte[] dst, int n) throws IOException {
+        for (int i = 0; i < n; i++)
+            dst[i] = (byte) decodeSymbol(br);
+    }
+
+    // Same, writing dst[pos, pos+n) of a ByteBuffer (e.g. a mapped output file)
+    public void decode(HuffmanEncoding.BitReader br, java.nio.ByteBuffer dst, int pos, int n) throws IOException {
+        for (int i = pos; i < pos + n; i++)
+            dst.put(i, (byte) decodeSymbol(br));
+    }
+
+    /*
+     * Benchmark: tree walk (Node.left/right per bit) vs table lookup on the
+     * same encoded blocks.  java HuffmanTableDecoder [files...]
+     */
+    public static void main(String[] args) throws IOException {
+        String[] files = args.length > 0 ? args
+                : new String[] {"Churn_Modelling.csv", "sales_data_sample.csv"};
+        int reps = 20;
+
+        for (String file : files) {
+            byte[] data = Files.readAllBytes(Paths.get(file));
+
+            // encode every block once, keep the payloads in memory
+            List<byte[]> payloads = new ArrayList<>();
+            List<Integer> rawLens = new ArrayList<>();
+            HuffmanEncoding.BitWriter bw = new HuffmanEncoding.BitWriter(HuffmanEncoding.BLOCK_SIZE);
+            byte[] block = new byte[HuffmanEncoding.BLOCK_SIZE];
+            for (int off = 0; off < data.length; off += HuffmanEncoding.BLOCK_SIZE) {
+                int n = Math.min(HuffmanEncoding.BLOCK_SIZE, data.length - off);
+                System.arraycopy(data, off, block, 0, n);
+                HuffmanEncoding.encodeBlock(block, n, bw);
+                ByteArrayOutputStream bos = new ByteArrayOutputStream(bw.size());
+                bw.writeTo(bos);
+                bw.reset();
+                payloads.add(bos.toByteArray());
+                rawLens.add(n);
+            }
+
+            HuffmanEncoding.BitReader br = new HuffmanEncoding.BitReader();
+            HuffmanTableDecoder table = new HuffmanTableDecoder();
+            byte[] out = new byte[HuffmanEncoding.BLOCK_SIZE];
+            double[] mbps = new double[2];
+            for (int mode = 0; mode < 2; mode++) {
+                for (int round = 0; round < 2; round++) {       // round 0 = JIT warm-up
+                    long start = System.nanoTime();
+                    for (int r = 0; r < reps; r++) {
+                        for (int b = 0; b < payloads.size(); b++) {
+                            byte[] p = payloads.get(b);
+                            br.reset(p, p.length);
+                            if (mode == 0) HuffmanEncoding.decodeBlockTreeWalk(br, out, rawLens.get(b));
+                            else HuffmanEncoding.decodeBlock(br, out, rawLens.get(b), table);
+                        }
+                    }
+                    mbps[mode] = (double) data.length * reps / 1e6 / ((System.nanoTime() - start) / 1e9);
+                }
+            }
+            System.out.printf("%-24s tree walk %7.1f MB/s   table %7.1f MB/s   (%.2fx)%n",
+                    file, mbps[0], mbps[1], mbps[1] / mbps[0]);
+        }
+    }
+}
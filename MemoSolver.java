@@ -0,0 +1,337 @@
+import java.util.Random;
+
+/*
+ * ------------------ MEMOIZING EXECUTOR FOR RECURSIONS ------------------
+ * Fibo.Reccfibo solves the same subproblems again and again (O(2^n)) and
+ * recursion depth n overflows the call stack for large n. zerooneknapsack
+ * avoids both by hand-tabulating. This class runs any such recurrence
+ *
+ *     f(key) = combine(key, f(dep_1), ..., f(dep_k))
+ *
+ * written as a Recurrence (its dependencies + how to combine them):
+ *
+ *   - memo: open-addressing long -> long map (linear probing, backward-shift
+ *     deletion), no boxing, no HashMap<Integer, Integer> entries
+ *   - optional bound on the number of remembered results: when full, the
+ *     clock (second-chance) policy evicts an entry that was not used lately
+ *   - an explicit stack instead of recursion: depth is limited by the heap,
+ *     not by the thread stack
+ *
+ * With an unbounded memo every key is computed once: Reccfibo becomes O(n).
+ * With a bound results may be recomputed, but answers stay exact; the bound
+ * must cover the recurrence's working set or recomputation grows quickly.
+ */
+public class MemoSolver {
+
+    // A recursive function over long keys, described without recursion. Must be acyclic.
+    public interface Recurrence {
+        // Write the keys f(key) depends on into deps and return how many (0 = base case)
+        int dependencies(long key, long[] deps);
+
+        // f(key) from the values of its dependencies, in the order dependencies() gave them
+        long combine(long key, long[] values, int count);
+    }
+
+    // ---------------------------------------------------------------- memo
+
+    /*
+     * long -> long hash map with linear probing. Long.MIN_VALUE marks an empty
+     * slot, so it cannot be used as a key. A removed entry is filled by
+     * shifting later entries of its probe run back (no tombstones).
+     */
+    static final class LongLongMap {
+        static final long EMPTY = Long.MIN_VALUE;
+
+        long[] keys, vals;
+        boolean[] ref;          // clock bit: set on every hit, cleared as the hand passes
+        int mask, size, hand;
+        final int maxEntries;   // Integer.MAX_VALUE = unbounded
+        long evictions;
+
+        LongLongMap(int maxEntries) {
+            this.maxEntries = maxEntries;
+            int cap = 16;
+            while (maxEntries != Integer.MAX_VALUE && cap < 2L * maxEntries) cap <<= 1;
+            allocate(cap);
+        }
+
+        private void allocate(int cap) {
+            keys = new long[cap];
+            vals = new long[cap];
+            ref = new boolean[cap];
+            java.util.Arrays.fill(keys, EMPTY);
+            mask = cap - 1;
+            size = 0;
+            hand = 0;
+        }
+
+        private int home(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+
+        // Slot of key, or -1
+        int find(long key) {
+            if (key == EMPTY) throw new IllegalArgumentException("Long.MIN_VALUE cannot be a key");
+            for (int i = home(key); ; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    ref[i] = true;
+                    return i;
+                }
+                if (keys[i] == EMPTY) return -1;
+            }
+        }
+
+        void put(long key, long value) {
+            if (key == EMPTY) throw new IllegalArgumentException("Long.MIN_VALUE cannot be a key");
+            int i = home(key);
+            for (; keys[i] != EMPTY; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    vals[i] = value;
+                    ref[i] = true;
+                    return;
+                }
+            }
+            if (size >= maxEntries) {
+                evict();
+                put(key, value);        // the eviction may have shifted the probe run
+                return;
+            }
+            keys[i] = key;
+            vals[i] = value;
+            ref[i] = true;
+            if (++size * 2 > keys.length) grow();
+        }
+
+        // Clock: sweep the slots, giving recently used entries a second chance
+        private void evict() {
+            while (true) {
+                int i = hand;
+                hand = (hand + 1) & mask;
+                if (keys[i] == EMPTY) continue;
+                if (ref[i]) {
+                    ref[i] = false;
+                } else {
+                    removeAt(i);
+                    evictions++;
+                    return;
+                }
+            }
+        }
+
+        // Backward-shift deletion: move later members of the run into the hole
+        private void removeAt(int hole) {
+            int i = hole;
+            while (true) {
+                i = (i + 1) & mask;
+                if (keys[i] == EMPTY) break;
+                int h = home(keys[i]);
+                // keys[i] may move to hole only if its home is not in (hole, i]
+                if (((i - h) & mask) >= ((i - hole) & mask)) {
+                    keys[hole] = keys[i];
+                    vals[hole] = vals[i];
+                    ref[hole] = ref[i];
+                    hole = i;
+                }
+            }
+            keys[hole] = EMPTY;
+            ref[hole] = false;
+            size--;
+        }
+
+        private void grow() {
+            long[] k = keys, v = vals;
+            allocate(k.length * 2);
+            for (int i = 0; i < k.length; i++) {
+                if (k[i] != EMPTY) put(k[i], v[i]);
+            }
+        }
+
+        void clear() {
+            java.util.Arrays.fill(keys, EMPTY);
+            java.util.Arrays.fill(ref, false);
+            size = 0;
+            hand = 0;
+        }
+    }
+
+    // ---------------------------------------------------------------- solver
+
+    private final Recurrence rec;
+    private final int maxDeps;
+    final LongLongMap memo;
+    long computed;          // number of combine() calls
+
+    // Explicit stack: frame f owns pool[start[f] .. start[f] + count[f]) for deps and their values
+    private long[] frameKey = new long[64];
+    private int[] frameStart = new int[64], frameCount = new int[64], frameNext = new int[64];
+    private long[] depPool = new long[256], valPool = new long[256];
+    private final long[] depScratch, valScratch;
+
+    public MemoSolver(Recurrence rec, int maxDeps) {
+        this(rec, maxDeps, Integer.MAX_VALUE);
+    }
+
+    // maxEntries bounds the memo (clock eviction); Integer.MAX_VALUE = remember everything
+    public MemoSolver(Recurrence rec, int maxDeps, int maxEntries) {
+        if (maxDeps < 1 || maxEntries < 1) throw new IllegalArgumentException("maxDeps and maxEntries must be >= 1");
+        this.rec = rec;
+        this.maxDeps = maxDeps;
+        this.memo = new LongLongMap(maxEntries);
+        depScratch = new long[maxDeps];
+        valScratch = new long[maxDeps];
+    }
+
+    public long eval(long key) {
+        int slot = memo.find(key);
+        if (slot >= 0) return memo.vals[slot];
+
+        int top = push(0, key, 0);
+        while (true) {
+            int f = top - 1;
+
+            //resolve the dependencies of the top frame, descending into the first unknown one
+            boolean descended = false;
+            while (frameNext[f] < frameCount[f]) {
+                int p = frameStart[f] + frameNext[f];
+                int s = memo.find(depPool[p]);
+                if (s < 0) {
+                    top = push(top, depPool[p], frameStart[f] + frameCount[f]);
+                    descended = true;
+                    break;
+                }
+                valPool[p] = memo.vals[s];
+                frameNext[f]++;
+            }
+            if (descended) continue;
+
+            //all known: combine, remember and hand the value straight to the parent
+            int n = frameCount[f];
+            System.arraycopy(valPool, frameStart[f], valScratch, 0, n);
+            long v = rec.combine(frameKey[f], valScratch, n);
+            computed++;
+            memo.put(frameKey[f], v);
+            top--;
+            if (top == 0) return v;
+            int parent = top - 1;
+            valPool[frameStart[parent] + frameNext[parent]++] = v;     // safe even if v was evicted already
+        }
+    }
+
+    private int push(int top, long key, int start) {
+        int n = rec.dependencies(key, depScratch);
+        if (n < 0 || n > maxDeps) throw new IllegalStateException("dependencies() returned " + n);
+        if (top == frameKey.length) {
+            int cap = top * 2;
+            frameKey = java.util.Arrays.copyOf(frameKey, cap);
+            frameStart = java.util.Arrays.copyOf(frameStart, cap);
+            frameCount = java.util.Arrays.copyOf(frameCount, cap);
+            frameNext = java.util.Arrays.copyOf(frameNext, cap);
+        }
+        if (start + n > depPool.length) {
+            int cap = Math.max(depPool.length * 2, start + n);
+            depPool = java.util.Arrays.copyOf(depPool, cap);
+            valPool = java.util.Arrays.copyOf(valPool, cap);
+        }
+        System.arraycopy(depScratch, 0, depPool, start, n);
+        frameKey[top] = key;
+        frameStart[top] = start;
+        frameCount[top] = n;
+        frameNext[top] = 0;
+        return top + 1;
+    }
+
+    public void clear() {
+        memo.clear();
+    }
+
+    // ---------------------------------------------------------------- examples
+
+    // Reccfibo's recurrence, every value taken mod m (m = 0: plain long, exact up to n = 92)
+    static Recurrence fibonacci(long m) {
+        return new Recurrence() {
+            public int dependencies(long n, long[] deps) {
+                if (n <= 1) return 0;
+                deps[0] = n - 1;
+                deps[1] = n - 2;
+                return 2;
+            }
+
+            public long combine(long n, long[] v, int count) {
+                if (count == 0) return n;
+                long s = v[0] + v[1];
+                return m == 0 ? s : s % m;
+            }
+        };
+    }
+
+    // K(i, j) = best profit from the first i items with capacity j, key = i * (W + 1) + j
+    static Recurrence knapsack(int[] val, int[] wt, int W) {
+        final long width = W + 1L;
+        return new Recurrence() {
+            public int dependencies(long key, long[] deps) {
+                long i = key / width, j = key % width;
+                if (i == 0 || j == 0) return 0;
+                deps[0] = key - width;                              // K(i-1, j)
+                if (wt[(int) i - 1] > j) return 1;
+                deps[1] = key - width - wt[(int) i - 1];            // K(i-1, j-w)
+                return 2;
+            }
+
+            public long combine(long key, long[] v, int count) {
+                if (count == 0) return 0;
+                if (count == 1) return v[0];
+                return Math.max(v[0], v[1] + val[(int) (key / width) - 1]);
+            }
+        };
+    }
+
+    /*
+     * Demo:
+     *   1. Reccfibo(35) vs memoized Fibonacci
+     *   2. Fibonacci(10^6) mod 10^9+7: 10^6 levels deep, no StackOverflowError,
+     *      also with a 64-entry memo (the recent values are all it needs)
+     *   3. knapsack recursion vs zerooneknapsack.knapsack (only reachable states are computed)
+     */
+    public static void main(String[] args) {
+        long t0 = System.nanoTime();
+        int slow = Fibo.Reccfibo(35);
+        long t1 = System.nanoTime();
+        MemoSolver fib = new MemoSolver(fibonacci(0), 2);
+        long fast = fib.eval(35);
+        long t2 = System.nanoTime();
+        if (slow != fast || fib.eval(90) != FastFibo.fibLong(90)) throw new IllegalStateException("fibonacci mismatch");
+        System.out.printf("F(35): Reccfibo %.1f ms, memoized %.3f ms (%d combines)%n",
+                (t1 - t0) / 1e6, (t2 - t1) / 1e6, fib.computed);
+
+        long mod = 1_000_000_007L;
+        int deep = 1_000_000;
+        t0 = System.nanoTime();
+        long big = new MemoSolver(fibonacci(mod), 2).eval(deep);
+        t1 = System.nanoTime();
+        MemoSolver bounded = new MemoSolver(fibonacci(mod), 2, 64);
+        long boundedResult = bounded.eval(deep);
+        t2 = System.nanoTime();
+        if (big != FiboQueries.fibMod(deep, mod) || boundedResult != big)
+            throw new IllegalStateException("deep fibonacci mismatch");
+        System.out.printf("F(%d) mod 1e9+7 = %d, %d levels deep: %.1f ms, memo bounded to 64 entries %.1f ms (%d evictions)%n",
+                deep, big, deep, (t1 - t0) / 1e6, (t2 - t1) / 1e6, bounded.memo.evictions);
+
+        Random rnd = new Random(7);
+        int n = 200, W = 5_000;
+        int[] val = new int[n], wt = new int[n];
+        for (int i = 0; i < n; i++) {
+            val[i] = 1 + rnd.nextInt(1000);
+            wt[i] = 1 + rnd.nextInt(200);
+        }
+        t0 = System.nanoTime();
+        int dp = zerooneknapsack.knapsack(val, wt, W, n);
+        t1 = System.nanoTime();
+        MemoSolver ks = new MemoSolver(knapsack(val, wt, W), 2);
+        long memoized = ks.eval((long) n * (W + 1) + W);
+        t2 = System.nanoTime();
+        if (dp != memoized) throw new IllegalStateException("knapsack mismatch");
+        System.out.printf("knapsack n=%d W=%d: table %.1f ms, memoized %.1f ms (%d states of %d)%n",
+                n, W, (t1 - t0) / 1e6, (t2 - t1) / 1e6, ks.memo.size, (long) (n + 1) * (W + 1));
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * ------------------ BITBOARD N-QUEENS ------------------
+ * NQueensFixed keeps an int[N][N] board and isSafe() walks the column and
+ * both diagonals for every try: O(N) per check, N^2 ints of memory. Here the
+ * attacked squares of the next row are kept as bitmasks instead:
+ *
+ *   cols  : columns already used
+ *   left  : diagonals going down-left, shifted one column per row
+ *   right : diagonals going down-right, shifted one column per row
+ *
+ *   free = ~(cols | left | right) & full      all safe squares of the row at once
+ *   bit  = free & -free                       lowest safe square, O(1)
+ *
+ * N <= 64 fits in one long (Small). Filling rows top to bottom stops finding
+ * solutions in reasonable time around N = 30, so solve() uses Wide for every
+ * N: long[] words of column bits plus the two diagonal families indexed by
+ * (row + col) and (col - row + N - 1), from which the free squares of a row
+ * are read 64 columns at a time; it fills the most constrained row first and
+ * restarts with a growing budget. Small stays as the row-order search that
+ * NQueensFixed's int[][] board is benchmarked against.
+ *
+ * The fixed queen at (fixedRow, fixedCol) is checked against every row,
+ * above and below it; its row only ever tries fixedCol.
+ *
+ * Result: queens[row] = column, or null when there is no solution.
+ */
+public class NQueensBitboard {
+
+    static final int LONG_LIMIT = 64;
+
+    public static int[] solve(int n, int fixedRow, int fixedCol) {
+        if (n < 1) throw new IllegalArgumentException("n must be >= 1");
+        if (fixedRow < 0 || fixedRow >= n || fixedCol < 0 || fixedCol >= n)
+            throw new IllegalArgumentException("fixed queen must be on the board");
+        return new Wide(n, fixedRow, fixedCol).solve();
+    }
+
+    // Squares of each row attacked by the fixed queen alone (bit c = column c)
+    static long[] fixedAttacks(int n, int fixedRow, int fixedCol) {
+        long[] attacked = new long[n];
+        for (int r = 0; r < n; r++) {
+            int d = Math.abs(r - fixedRow);
+            long m = 1L << fixedCol;
+            if (fixedCol + d < n) m |= 1L << (fixedCol + d);
+            if (fixedCol - d >= 0) m |= 1L << (fixedCol - d);
+            attacked[r] = m;
+        }
+        return attacked;
+    }
+
+    // ---------------------------------------------------------------- N <= 64, row order
+
+    static final class Small {
+        final int n, fixedRow, fixedCol;
+        final long full;
+        final long[] fixed;
+        final int[] queens;
+
+        Small(int n, int fixedRow, int fixedCol) {
+            this.n = n;
+            this.fixedRow = fixedRow;
+            this.fixedCol = fixedCol;
+            full = n == 64 ? -1L : (1L << n) - 1;
+            fixed = fixedAttacks(n, fixedRow, fixedCol);
+            queens = new int[n];
+        }
+
+        int[] solve() {
+            return place(0, 0, 0, 0) ? queens : null;
+        }
+
+        private boolean place(int row, long cols, long left, long right) {
+            if (row == n) return true;
+            long free;
+            if (row == fixedRow) {
+                free = ~(cols | left | right) & (1L << fixedCol);
+            } else {
+                free = ~(cols | left | right | fixed[row]) & full;
+            }
+            while (free != 0) {
+                long bit = free & -free;        // lowest free column
+                free ^= bit;
+                queens[row] = Long.numberOfTrailingZeros(bit);
+                if (place(row + 1, cols | bit, ((left | bit) >>> 1), ((right | bit) << 1) & full))
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    // ---------------------------------------------------------------- any N, most constrained row first
+
+    /*
+     * cols has a bit per column, diag1 a bit per (row + col), diag2 a bit per
+     * (col - row + N - 1). For row r and columns 64w .. 64w+63 the diagonal bits
+     * are contiguous runs, read with window(). Trying rows top to bottom stops
+     * finding solutions in reasonable time around N = 30, so this search picks
+     * the open row with the fewest free squares next (a row with none fails at
+     * once). The fixed queen is simply placed first. The search is iterative,
+     * so depth N costs no call stack.
+     */
+    static final class Wide {
+        final int n, fixedRow, fixedCol, words;
+        final long[] cols, diag1, diag2;
+        final int[] queens;
+        final boolean[] placed;
+
+        Wide(int n, int fixedRow, int fixedCol) {
+            this.n = n;
+            this.fixedRow = fixedRow;
+            this.fixedCol = fixedCol;
+            words = (n + 63) >>> 6;
+            cols = new long[words];
+            diag1 = new long[((2 * n) >>> 6) + 2];     // +1 word so window() can read past the end
+            diag2 = new long[((2 * n) >>> 6) + 2];
+            queens = new int[n];
+            placed = new boolean[n];
+        }
+
+        // 64 bits of bits[] starting at bit off
+        private static long window(long[] bits, int off) {
+            int w = off >>> 6, s = off & 63;
+            return s == 0 ? bits[w] : (bits[w] >>> s) | (bits[w + 1] << (64 - s));
+        }
+
+        private static void flip(long[] bits, int i) {
+            bits[i >>> 6] ^= 1L << i;
+        }
+
+        private void toggle(int r, int c) {
+            flip(cols, c);
+            flip(diag1, r + c);
+            flip(diag2, c - r + n - 1);
+            placed[r] = !placed[r];
+        }
+
+        // Safe squares of row r in columns 64w .. 64w+63
+        private long freeWord(int r, int w) {
+            int base = w << 6;
+            long free = ~(cols[w] | window(diag1, r + base) | window(diag2, base - r + n - 1));
+            if (w == words - 1 && (n & 63) != 0) free &= (1L << (n & 63)) - 1;
+            return free;
+        }
+
+        // Smallest safe column >= from in row r, or -1
+        private int nextFree(int r, int from) {
+            for (int w = from >>> 6; w < words; w++) {
+                long free = freeWord(r, w);
+                if (w == from >>> 6) free &= -1L << (from & 63);
+                if (free != 0) return (w << 6) + Long.numberOfTrailingZeros(free);
+            }
+            return -1;
+        }
+
+        // Open row with the fewest safe squares
+        private int pickRow() {
+            int best = -1, bestCount = Integer.MAX_VALUE;
+            for (int r = 0; r < n && bestCount > 0; r++) {
+                if (placed[r]) continue;
+                int count = 0;
+                for (int w = 0; w < words && count < bestCount; w++)
+                    count += Long.bitCount(freeWord(r, w));
+                if (count < bestCount) {
+                    best = r;
+                    bestCount = count;
+                }
+            }
+            return best;
+        }
+
+        // Offset k >= from of the first safe column (start + k) mod n in row r, or -1
+        private int nextFree(int r, int start, int from) {
+            if (start + from < n) {
+                int c = nextFree(r, start + from);
+                if (c >= 0) return c - start;
+                from = n - start;
+            }
+            int c = nextFree(r, start + from - n);
+            return c >= 0 && c < start ? c + n - start : -1;
+        }
+
+        int[] solve() {
+            long seed = 0x9E3779B97F4A7C15L ^ n;
+            for (long budget = 8L * n; ; budget *= 2) {
+                java.util.Arrays.fill(cols, 0);
+                java.util.Arrays.fill(diag1, 0);
+                java.util.Arrays.fill(diag2, 0);
+                java.util.Arrays.fill(placed, false);
+                seed = seed * 6364136223846793005L + 1442695040888963407L;
+                int result = search(seed | 1, budget);
+                if (result > 0) return queens;
+                if (result == 0) return null;
+            }
+        }
+
+        /*
+         * One depth-first attempt: 1 = solved, 0 = no solution exists, -1 = gave
+         * up after budget placements. Randomised searches like this one have a
+         * heavy tail (a bad early choice costs millions of nodes), so solve()
+         * restarts with a new seed and twice the budget; the budget keeps
+         * growing, so the search is still complete.
+         */
+        private int search(long seed, long budget) {
+            queens[fixedRow] = fixedCol;
+            toggle(fixedRow, fixedCol);
+            int[] rowAt = new int[n];       // row chosen at each depth
+            int[] startAt = new int[n];     // its columns are tried from here, wrapping around
+            int[] offsetAt = new int[n];
+            int depth = 0, from = 0;
+            boolean choose = true;
+            while (depth < n - 1) {
+                if (choose) {
+                    rowAt[depth] = pickRow();
+                    seed ^= seed << 13;     // xorshift: spread the queens instead of packing them left
+                    seed ^= seed >>> 7;
+                    seed ^= seed << 17;
+                    startAt[depth] = (int) Long.remainderUnsigned(seed, n);
+                    from = 0;
+                }
+                int r = rowAt[depth];
+                int k = nextFree(r, startAt[depth], from);
+                if (k >= 0) {
+                    if (--budget < 0) return -1;
+                    offsetAt[depth] = k;
+                    queens[r] = (startAt[depth] + k) % n;
+                    toggle(r, queens[r]);
+                    depth++;
+                    choose = true;
+                } else {
+                    if (depth == 0) return 0;
+                    depth--;
+                    r = rowAt[depth];
+                    toggle(r, queens[r]);
+                    from = offsetAt[depth] + 1;
+                    choose = false;
+                }
+            }
+            return 1;
+        }
+    }
+
+    // Does queens[] place n non-attacking queens with one on (fixedRow, fixedCol)?
+    static boolean valid(int[] queens, int fixedRow, int fixedCol) {
+        return queens[fixedRow] == fixedCol && nonAttacking(queens);
+    }
+
+    // No two queens share a column or a diagonal (rows differ by construction)
+    static boolean nonAttacking(int[] queens) {
+        int n = queens.length;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (queens[i] == queens[j] || Math.abs(queens[i] - queens[j]) == j - i) return false;
+            }
+        }
+        return true;
+    }
+
+    // NQueensFixed.solve on a fresh board, result as queens[row] = column
+    static int[] solveWithBoard(int n, int fixedRow, int fixedCol) {
+        NQueensFixed.N = n;
+        NQueensFixed.board = new int[n][n];
+        NQueensFixed.fixedRow = fixedRow;
+        NQueensFixed.fixedCol = fixedCol;
+        NQueensFixed.board[fixedRow][fixedCol] = 1;
+        if (!NQueensFixed.solve(0)) return null;
+        int[] queens = new int[n];
+        for (int r = 0; r < n; r++) {
+            for (int c = 0; c < n; c++) {
+                if (NQueensFixed.board[r][c] == 1) queens[r] = c;
+            }
+        }
+        return queens;
+    }
+
+    /*
+     * Benchmark: first solution with the queen fixed at (0, 0), for the
+     * int[][] board (NQueensFixed.solve) and the row-order bitboard (Small), as
+     * solves per second. Both try columns in the same order, so they must find
+     * the same solution. Then solve() from N = 30, where row order gives out,
+     * to boards past 64 columns.
+     */
+    public static void main(String[] args) {
+        System.out.printf("%4s | %16s | %16s | %7s%n", "N", "int[][] solves/s", "bitboard solves/s", "speedup");
+        for (int n = 8; n <= 26; n += 2) {
+            if (!java.util.Arrays.equals(solveWithBoard(n, 0, 0), new Small(n, 0, 0).solve()))
+                throw new IllegalStateException("different first solution for N=" + n);
+            int[] wide = solve(n, 0, 0);
+            if (wide == null || !valid(wide, 0, 0))
+                throw new IllegalStateException("solve() failed for N=" + n);
+
+            double[] rate = new double[2];
+            for (int mode = 0; mode < 2; mode++) {
+                long t0 = System.nanoTime(), runs = 0;
+                do {
+                    if (mode == 0) solveWithBoard(n, 0, 0);
+                    else new Small(n, 0, 0).solve();
+                    runs++;
+                } while (System.nanoTime() - t0 < 200_000_000L);
+                rate[mode] = runs / ((System.nanoTime() - t0) / 1e9);
+            }
+            System.out.printf("%4d | %16.0f | %16.0f | %6.1fx%n", n, rate[0], rate[1], rate[1] / rate[0]);
+        }
+
+        for (int n : new int[] {30, 40, 48, 56, 63, 64, 65, 100, 128, 500, 1000, 2000}) {
+            int fr = n / 2, fc = n / 3;
+            long t0 = System.nanoTime();
+            int[] q = solve(n, fr, fc);
+            long t1 = System.nanoTime();
+            System.out.printf("N=%d fixed at (%d,%d): %s in %.1f ms%n", n, fr, fc,
+                    q == null ? "no solution" : valid(q, fr, fc) ? "solved" : "INVALID", (t1 - t0) / 1e6);
+        }
+    }
+}
@@ -0,0 +1,323 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/*
+ * ------------------ PERSISTENT N-QUEENS SOLUTION CACHE ------------------
+ * Services ask the same "N queens with these queens already placed"
+ * questions again and again. This cache answers them without a search:
+ *
+ *   canonical key : the fixed squares under all 8 symmetries of the board
+ *                   (4 rotations x mirror), the smallest sorted form wins;
+ *                   rotated / reflected queries share one entry and the
+ *                   stored solution is mapped back through the symmetry
+ *   memory tier   : LRU map of the most recent keys
+ *   disk tier     : append-only file that survives restarts
+ *                     header  "NQSC"
+ *                     record  n:byte k:byte k x square:short solvable:byte [n x column:byte]
+ *                   its index (key -> file offset) is rebuilt by one scan on open
+ *   precompute()  : fills the cache for every single fixed queen on N = lo..hi
+ *                   (canonical squares only, solved as a NQueensSolver batch)
+ *
+ * Boards up to 64 x 64 (NQueensSolver). Methods are synchronized: one cache
+ * can be shared by all request threads.
+ */
+public class NQueensCache implements Closeable {
+
+    static final int MAGIC = 0x4E515343;    // "NQSC"
+
+    // Stored answer for "no solution", told apart from a miss (null)
+    private static final int[] NO_SOLUTION = new int[0];
+
+    // Canonical query: board size plus sorted squares (row * n + col)
+    static final class Key {
+        final int n;
+        final int[] squares;
+        private final int hash;
+
+        Key(int n, int[] squares) {
+            this.n = n;
+            this.squares = squares;
+            hash = 31 * n + java.util.Arrays.hashCode(squares);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).n == n && java.util.Arrays.equals(((Key) o).squares, squares);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private final LinkedHashMap<Key, int[]> memory;
+    private final HashMap<Key, Long> diskIndex = new HashMap<>();
+    private final FileChannel file;
+    long memoryHits, diskHits, misses;
+
+    public NQueensCache(Path path, int memoryEntries) throws IOException {
+        memory = new LinkedHashMap<Key, int[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, int[]> eldest) {
+                return size() > memoryEntries;
+            }
+        };
+        file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (file.size() == 0) {
+            file.write(ByteBuffer.allocate(4).putInt(0, MAGIC), 0);
+        } else {
+            loadIndex();
+        }
+    }
+
+    // Scan the records; a torn last record (crash during a write) is cut off
+    private void loadIndex() throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(file.position(0)), 1 << 16));
+        if (in.readInt() != MAGIC) throw new IOException("not an N-Queens cache file");
+        long pos = 4, size = file.size();
+        while (pos < size) {
+            try {
+                int n = in.readUnsignedByte(), k = in.readUnsignedByte();
+                int[] squares = new int[k];
+                for (int i = 0; i < k; i++)
+                    squares[i] = in.readUnsignedShort();
+                long valuePos = pos + 2 + 2L * k;
+                boolean solvable = in.readBoolean();
+                if (solvable) in.readFully(new byte[n]);
+                diskIndex.put(new Key(n, squares), valuePos);
+                pos = valuePos + 1 + (solvable ? n : 0);
+            } catch (EOFException torn) {
+                file.truncate(pos);
+                break;
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------- symmetry
+
+    // Square (r, c) under symmetry t of an n x n board
+    static int transform(int t, int n, int r, int c) {
+        int m = n - 1, rr, cc;
+        switch (t) {
+            case 0: rr = r; cc = c; break;              // identity
+            case 1: rr = c; cc = m - r; break;          // rotate 90
+            case 2: rr = m - r; cc = m - c; break;      // rotate 180
+            case 3: rr = m - c; cc = r; break;          // rotate 270
+            case 4: rr = r; cc = m - c; break;          // mirror left-right
+            case 5: rr = m - r; cc = c; break;          // mirror top-bottom
+            case 6: rr = c; cc = r; break;              // main diagonal
+            default: rr = m - c; cc = m - r; break;     // anti-diagonal
+        }
+        return rr * n + cc;
+    }
+
+    // Symmetry that undoes t
+    static final int[] INVERSE = {0, 3, 2, 1, 4, 5, 6, 7};
+
+    // A solution under symmetry t (every symmetry maps rows to rows or to columns, so it stays one queen per row)
+    static int[] transformSolution(int t, int[] queens) {
+        int n = queens.length;
+        int[] out = new int[n];
+        for (int r = 0; r < n; r++) {
+            int sq = transform(t, n, r, queens[r]);
+            out[sq / n] = sq % n;
+        }
+        return out;
+    }
+
+    // Index of the symmetry giving the smallest sorted square list; result[0] = that list
+    static int canonical(int n, int[][] fixed, int[][] result) {
+        int best = -1;
+        int[] bestSquares = null;
+        for (int t = 0; t < 8; t++) {
+            int[] sq = new int[fixed.length];
+            for (int i = 0; i < fixed.length; i++)
+                sq[i] = transform(t, n, fixed[i][0], fixed[i][1]);
+            java.util.Arrays.sort(sq);
+            if (bestSquares == null || java.util.Arrays.compare(sq, bestSquares) < 0) {
+                best = t;
+                bestSquares = sq;
+            }
+        }
+        result[0] = bestSquares;
+        return best;
+    }
+
+    // ---------------------------------------------------------------- queries
+
+    // A solution with queens on all fixed squares ({row, col} pairs), or null if there is none
+    public synchronized int[] solve(int n, int[][] fixed) throws IOException {
+        for (int[] f : fixed) {
+            if (f[0] < 0 || f[0] >= n || f[1] < 0 || f[1] >= n)
+                throw new IllegalArgumentException("fixed queen off the board");
+        }
+        int[][] canon = new int[1][];
+        int t = canonical(n, fixed, canon);
+        Key key = new Key(n, canon[0]);
+
+        int[] stored = memory.get(key);
+        if (stored != null) {
+            memoryHits++;
+        } else {
+            stored = readDisk(key);
+            if (stored != null) {
+                diskHits++;
+            } else {
+                misses++;
+                int[] q = solverFor(key).solve();
+                stored = q == null ? NO_SOLUTION : q;
+                append(key, stored);
+            }
+            memory.put(key, stored);
+        }
+        return stored == NO_SOLUTION ? null : transformSolution(INVERSE[t], stored);
+    }
+
+    static NQueensSolver solverFor(Key key) {
+        NQueensSolver s = new NQueensSolver(key.n);
+        for (int sq : key.squares)
+            s.place(sq / key.n, sq % key.n);
+        return s;
+    }
+
+    private int[] readDisk(Key key) throws IOException {
+        Long pos = diskIndex.get(key);
+        if (pos == null) return null;
+        ByteBuffer buf = ByteBuffer.allocate(1 + key.n);     // a no-solution record may end the file early
+        while (buf.hasRemaining() && file.read(buf, pos + buf.position()) > 0) {
+        }
+        if (buf.get(0) == 0) return NO_SOLUTION;
+        int[] q = new int[key.n];
+        for (int r = 0; r < key.n; r++)
+            q[r] = buf.get(1 + r);
+        return q;
+    }
+
+    private void append(Key key, int[] solution) throws IOException {
+        boolean solvable = solution != NO_SOLUTION;
+        ByteBuffer buf = ByteBuffer.allocate(3 + 2 * key.squares.length + (solvable ? key.n : 0));
+        buf.put((byte) key.n).put((byte) key.squares.length);
+        for (int sq : key.squares)
+            buf.putShort((short) sq);
+        buf.put((byte) (solvable ? 1 : 0));
+        if (solvable) {
+            for (int c : solution)
+                buf.put((byte) c);
+        }
+        buf.flip();
+        long pos = file.size();
+        file.write(buf, pos);
+        diskIndex.put(key, pos + 2 + 2L * key.squares.length);
+    }
+
+    /*
+     * Fill the cache for every single fixed queen on boards lo..hi: one
+     * canonical square per symmetry class, missing entries solved in
+     * parallel, then appended to the file.
+     */
+    public synchronized int precompute(int lo, int hi, ForkJoinPool pool) throws IOException {
+        List<Key> keys = new ArrayList<>();
+        List<NQueensSolver> jobs = new ArrayList<>();
+        for (int n = lo; n <= hi; n++) {
+            for (int r = 0; r < n; r++) {
+                for (int c = 0; c < n; c++) {
+                    int[][] canon = new int[1][];
+                    canonical(n, new int[][] {{r, c}}, canon);
+                    Key key = new Key(n, canon[0]);
+                    if (canon[0][0] != r * n + c || diskIndex.containsKey(key)) continue;     // not canonical / known
+                    keys.add(key);
+                    jobs.add(solverFor(key));
+                }
+            }
+        }
+        int[][] results = NQueensSolver.solveAll(jobs, pool);
+        for (int i = 0; i < keys.size(); i++)
+            append(keys.get(i), results[i] == null ? NO_SOLUTION : results[i]);
+        return keys.size();
+    }
+
+    public synchronized int size() {
+        return diskIndex.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        file.force(false);
+        file.close();
+    }
+
+    /*
+     * Demo: precompute N = 4..14 into a file, "restart" (reopen it), then
+     * answer random one- and two-queen queries and their rotations: fresh
+     * search vs disk tier vs memory tier.
+     */
+    public static void main(String[] args) throws IOException {
+        Path path = Files.createTempFile("nqueens", ".cache");
+        Files.delete(path);
+        try {
+            long t0 = System.nanoTime();
+            int filled;
+            try (NQueensCache cache = new NQueensCache(path, 1 << 12)) {
+                filled = cache.precompute(4, 14, ForkJoinPool.commonPool());
+            }
+            long t1 = System.nanoTime();
+            System.out.printf("precomputed %d canonical queries in %.1f ms, file %d bytes%n",
+                    filled, (t1 - t0) / 1e6, Files.size(path));
+
+            try (NQueensCache cache = new NQueensCache(path, 1 << 12)) {
+                System.out.printf("reopened: %d entries indexed%n", cache.size());
+                Random rnd = new Random(5);
+                long solveNs = 0, cachedNs = 0;
+                int queries = 2000;
+                for (int i = 0; i < queries; i++) {
+                    int n = 8 + rnd.nextInt(7);
+                    int[][] fixed = rnd.nextBoolean()
+                            ? new int[][] {{rnd.nextInt(n), rnd.nextInt(n)}}
+                            : new int[][] {{rnd.nextInt(n), rnd.nextInt(n)}, {rnd.nextInt(n), rnd.nextInt(n)}};
+                    if (fixed.length == 2 && fixed[0][0] == fixed[1][0]) continue;
+                    long a = System.nanoTime();
+                    NQueensSolver fresh = new NQueensSolver(n);
+                    for (int[] f : fixed) fresh.place(f[0], f[1]);
+                    int[] expected = fresh.solve();
+                    long b = System.nanoTime();
+                    int[] got = cache.solve(n, fixed);
+                    solveNs += b - a;
+                    if ((expected == null) != (got == null) || (got != null && !fresh.satisfies(got)))
+                        throw new IllegalStateException("cache answered a query wrongly");
+                    int t = rnd.nextInt(8);     // the same question, rotated or reflected
+                    int[][] moved = new int[fixed.length][];
+                    for (int j = 0; j < fixed.length; j++) {
+                        int sq = transform(t, n, fixed[j][0], fixed[j][1]);
+                        moved[j] = new int[] {sq / n, sq % n};
+                    }
+                    long c = System.nanoTime();
+                    int[] twin = cache.solve(n, moved);     // always a cache hit by now
+                    cachedNs += System.nanoTime() - c;
+                    if ((twin == null) != (got == null)) throw new IllegalStateException("twin answered differently");
+                    if (twin != null) {
+                        NQueensSolver check = new NQueensSolver(n);
+                        for (int[] f : moved) check.place(f[0], f[1]);
+                        if (!check.satisfies(twin)) throw new IllegalStateException("twin mapped back wrongly");
+                    }
+                }
+                System.out.printf("%d queries + their symmetric twins: memory hits %d, disk hits %d, searched %d%n",
+                        queries, cache.memoryHits, cache.diskHits, cache.misses);
+                System.out.printf("average: fresh search %.1f us, cached twin %.1f us%n",
+                        solveNs / 1e3 / queries, cachedNs / 1e3 / queries);
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * ------------------ PARALLEL N-QUEENS SOLUTION COUNT ------------------
+ * NQueensFixed.solve stops at the first solution. This class counts all of
+ * them, using the bitboard search of NQueensBitboard:
+ *
+ *   1. enumerate every safe placement of the first 2 rows (3 from N = 12 on):
+ *      a few hundred to a few thousand independent subtrees
+ *   2. mirror symmetry: a solution with its first queen in column c mirrors
+ *      to one with column N-1-c, so only the left half of row 0 is searched
+ *      and counted twice (the middle column of an odd board counts once)
+ *   3. count the subtrees in a ForkJoinPool: tasks split the prefix list in
+ *      halves, idle workers steal the other halves
+ *
+ * With a fixed queen the board is no longer mirror-symmetric, so that mode
+ * searches every prefix that agrees with it and skips step 2.
+ *
+ * Nodes (queens placed) are counted per task and summed at the end, so the
+ * instrumentation costs one local increment per node.
+ */
+public class NQueensCounter {
+
+    // Prefix lists shorter than this are counted by one task
+    static final int GRAIN = 8;
+
+    final int n, fixedRow, fixedCol;
+    final long full;
+    final long[] fixed;         // per-row squares attacked by the fixed queen (0 when there is none)
+    final LongAdder nodes = new LongAdder();
+
+    // Search state after the first rows, plus how many solutions each of its solutions stands for
+    static final class Prefix {
+        final int row;
+        final long cols, left, right;
+        final int weight;
+
+        Prefix(int row, long cols, long left, long right, int weight) {
+            this.row = row;
+            this.cols = cols;
+            this.left = left;
+            this.right = right;
+            this.weight = weight;
+        }
+    }
+
+    NQueensCounter(int n, int fixedRow, int fixedCol) {
+        if (n < 1 || n > NQueensBitboard.LONG_LIMIT) throw new IllegalArgumentException("n must be 1..64");
+        this.n = n;
+        this.fixedRow = fixedRow;
+        this.fixedCol = fixedCol;
+        full = n == 64 ? -1L : (1L << n) - 1;
+        fixed = fixedRow < 0 ? new long[n] : NQueensBitboard.fixedAttacks(n, fixedRow, fixedCol);
+    }
+
+    public static long count(int n) {
+        return count(n, ForkJoinPool.commonPool());
+    }
+
+    public static long count(int n, ForkJoinPool pool) {
+        return new NQueensCounter(n, -1, -1).run(pool);
+    }
+
+    // Solutions with a queen on (fixedRow, fixedCol)
+    public static long count(int n, int fixedRow, int fixedCol, ForkJoinPool pool) {
+        if (fixedRow < 0 || fixedRow >= n || fixedCol < 0 || fixedCol >= n)
+            throw new IllegalArgumentException("fixed queen must be on the board");
+        return new NQueensCounter(n, fixedRow, fixedCol).run(pool);
+    }
+
+    long run(ForkJoinPool pool) {
+        List<Prefix> prefixes = new ArrayList<>();
+        int splitRows = Math.min(n, n >= 12 ? 3 : 2);
+        expand(0, 0, 0, 0, 1, splitRows, prefixes);
+        return pool.invoke(new CountTask(prefixes, 0, prefixes.size()));
+    }
+
+    // Free squares of a row, restricted by the fixed queen
+    private long free(int row, long cols, long left, long right) {
+        if (row == fixedRow) return ~(cols | left | right) & (1L << fixedCol);
+        return ~(cols | left | right | fixed[row]) & full;
+    }
+
+    // Collect the states after `rows` rows; row 0 is halved by mirror symmetry when there is no fixed queen
+    private void expand(int row, long cols, long left, long right, int weight, int rows, List<Prefix> out) {
+        if (row == rows) {
+            out.add(new Prefix(row, cols, left, right, weight));
+            return;
+        }
+        long free = free(row, cols, left, right);
+        while (free != 0) {
+            long bit = free & -free;
+            free ^= bit;
+            int w = weight;
+            if (row == 0 && fixedRow < 0) {
+                int c = Long.numberOfTrailingZeros(bit);
+                if (2 * c > n - 1) continue;            // right half: the mirror images of the left half
+                if (2 * c < n - 1) w = 2;               // middle column of an odd board counts once
+            }
+            nodes.increment();
+            expand(row + 1, cols | bit, (left | bit) >>> 1, ((right | bit) << 1) & full, w, rows, out);
+        }
+    }
+
+    final class CountTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        final List<Prefix> prefixes;
+        final int from, to;
+
+        CountTask(List<Prefix> prefixes, int from, int to) {
+            this.prefixes = prefixes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from > GRAIN) {
+                int mid = (from + to) >>> 1;
+                CountTask right = new CountTask(prefixes, mid, to);
+                right.fork();
+                long left = new CountTask(prefixes, from, mid).compute();
+                return left + right.join();
+            }
+            long total = 0;
+            long[] visited = {0};
+            for (int i = from; i < to; i++) {
+                Prefix p = prefixes.get(i);
+                total += p.weight * countFrom(p.row, p.cols, p.left, p.right, visited);
+            }
+            nodes.add(visited[0]);
+            return total;
+        }
+    }
+
+    private long countFrom(int row, long cols, long left, long right, long[] visited) {
+        if (row == n) return 1;
+        long free = free(row, cols, left, right);
+        long solutions = 0;
+        while (free != 0) {
+            long bit = free & -free;
+            free ^= bit;
+            visited[0]++;
+            solutions += countFrom(row + 1, cols | bit, (left | bit) >>> 1, ((right | bit) << 1) & full, visited);
+        }
+        return solutions;
+    }
+
+    // Known totals (OEIS A000170) for the self-check
+    static final long[] KNOWN = {1, 1, 0, 0, 2, 10, 4, 40, 92, 352, 724, 2680, 14200, 73712, 365596,
+            2279184, 14772512, 95815104, 666090624, 4968057848L, 39029188884L};
+
+    /*
+     * java NQueensCounter [maxN]   counts N = 8 .. maxN (default 15) serially and
+     *                              with all cores: solutions, time, nodes/s, speedup
+     */
+    public static void main(String[] args) {
+        int maxN = args.length > 0 ? Integer.parseInt(args[0]) : 15;
+        int cores = Runtime.getRuntime().availableProcessors();
+        if (new NQueensCounter(8, 0, 0).run(ForkJoinPool.commonPool()) != 4)
+            throw new IllegalStateException("fixed-queen count is wrong");
+
+        ForkJoinPool serial = new ForkJoinPool(1);
+        ForkJoinPool parallel = new ForkJoinPool(cores);
+        for (int r = 0; r < 3; r++) {      // JIT warm-up
+            count(12, serial);
+            count(12, parallel);
+        }
+        System.out.printf("%3s | %12s | %10s | %12s | %10s | %12s | %7s%n",
+                "N", "solutions", "1 core ms", "nodes/s", cores + " cores ms", "nodes/s", "speedup");
+        for (int n = 8; n <= maxN; n++) {
+            NQueensCounter one = new NQueensCounter(n, -1, -1);
+            long t0 = System.nanoTime();
+            long a = one.run(serial);
+            long t1 = System.nanoTime();
+            NQueensCounter all = new NQueensCounter(n, -1, -1);
+            long b = all.run(parallel);
+            long t2 = System.nanoTime();
+            if (a != b || (n < KNOWN.length && a != KNOWN[n]))
+                throw new IllegalStateException("wrong count for N=" + n);
+            double s1 = (t1 - t0) / 1e9, s2 = (t2 - t1) / 1e9;
+            System.out.printf("%3d | %12d | %10.1f | %12.3g | %10.1f | %12.3g | %6.2fx%n", n, a,
+                    s1 * 1e3, one.nodes.sum() / s1, s2 * 1e3, all.nodes.sum() / s2, s1 / s2);
+        }
+        serial.shutdown();
+        parallel.shutdown();
+    }
+}
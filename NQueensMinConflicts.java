@@ -0,0 +1,230 @@
+import java.util.SplittableRandom;
+
+/*
+ * ------------------ MIN-CONFLICTS N-QUEENS FOR HUGE BOARDS ------------------
+ * Backtracking (NQueensFixed, NQueensBitboard) is hopeless for N = 10^5..10^7.
+ * Local search finds a solution in about linear time instead:
+ *
+ *   queens[row] = column is always a permutation -> no column conflicts
+ *   down[row + col], up[row - col + N - 1]       -> queens per diagonal
+ *   collisions = sum over diagonals of (queens on it - 1)
+ *
+ *   1. greedy start: row by row, take a random unused column whose two
+ *      diagonals are still empty (a few tries), else any unused column;
+ *      this leaves only a handful of collisions
+ *   2. repair: keep a list of rows in a collision; swap such a row's column
+ *      with a random other row's when that lowers the collisions (a swap
+ *      keeps the permutation), until there are none
+ *   3. if the repair stops making progress, start over with a new seed
+ *
+ * The fixed queen at (fixedRow, fixedCol) is placed first and its row is
+ * never swapped. Memory: 2N (queens, repair list) + 2 * (2N - 1) ints.
+ * Small boards (N <= 64) go to NQueensBitboard.Wide instead: it fills the
+ * most constrained row first with restarts and a growing budget, so it is
+ * complete (it can also report that there is no solution) and finishes in
+ * milliseconds there, while local search at N = 31 stalls and restarts
+ * 2-9 times (0.2-1.5 s). Row-order backtracking is not used at any size.
+ */
+public class NQueensMinConflicts {
+
+    // Random candidates tried per row in the greedy start
+    static final int GREEDY_TRIES = 16;
+
+    // Random partners tried per visit of an attacked row
+    static final int SWAP_TRIES = 32;
+
+    // Visits in a row without any improvement before a restart
+    static final int STALL_TRIES = 100_000;
+
+    static final int MAX_RESTARTS = 50;
+
+    final int n, fixedRow, fixedCol;
+    final int[] queens, down, up;
+    final SplittableRandom rnd;
+    long collisions, swaps;
+
+    NQueensMinConflicts(int n, int fixedRow, int fixedCol, long seed) {
+        this.n = n;
+        this.fixedRow = fixedRow;
+        this.fixedCol = fixedCol;
+        queens = new int[n];
+        down = new int[2 * n - 1];
+        up = new int[2 * n - 1];
+        rnd = new SplittableRandom(seed);
+    }
+
+    public static int[] solve(int n, int fixedRow, int fixedCol) {
+        return solve(n, fixedRow, fixedCol, 42);
+    }
+
+    public static int[] solve(int n, int fixedRow, int fixedCol, long seed) {
+        if (n < 1) throw new IllegalArgumentException("n must be >= 1");
+        if (fixedRow < 0 || fixedRow >= n || fixedCol < 0 || fixedCol >= n)
+            throw new IllegalArgumentException("fixed queen must be on the board");
+        if (n <= NQueensBitboard.LONG_LIMIT) return new NQueensBitboard.Wide(n, fixedRow, fixedCol).solve();
+        NQueensMinConflicts s = new NQueensMinConflicts(n, fixedRow, fixedCol, seed);
+        for (int attempt = 0; attempt < MAX_RESTARTS; attempt++) {
+            s.greedyStart();
+            if (s.repair()) return s.queens;
+        }
+        return null;
+    }
+
+    // ------------------------------------------------------------ diagonals
+
+    private void add(int r, int c) {
+        if (down[r + c]++ > 0) collisions++;
+        if (up[r - c + n - 1]++ > 0) collisions++;
+    }
+
+    private void remove(int r, int c) {
+        if (--down[r + c] > 0) collisions--;
+        if (--up[r - c + n - 1] > 0) collisions--;
+    }
+
+    private boolean attacked(int r, int c) {
+        return down[r + c] > 1 || up[r - c + n - 1] > 1;
+    }
+
+    // ------------------------------------------------------------ search
+
+    private void greedyStart() {
+        java.util.Arrays.fill(down, 0);
+        java.util.Arrays.fill(up, 0);
+        collisions = 0;
+        for (int i = 0; i < n; i++)
+            queens[i] = i;
+        // the fixed queen's column goes to its row, the rows are then filled in order
+        queens[fixedCol] = queens[fixedRow];
+        queens[fixedRow] = fixedCol;
+
+        // queens[r..n) holds the unused columns (except fixedRow, which is final)
+        for (int r = 0; r < n; r++) {
+            if (r == fixedRow) {
+                add(r, fixedCol);
+                continue;
+            }
+            int pick = -1;
+            for (int t = 0; t < GREEDY_TRIES && pick < 0; t++) {
+                int j = r + rnd.nextInt(n - r);
+                if (j == fixedRow) continue;
+                int c = queens[j];
+                if (down[r + c] == 0 && up[r - c + n - 1] == 0) pick = j;
+            }
+            if (pick < 0) {
+                do {
+                    pick = r + rnd.nextInt(n - r);
+                } while (pick == fixedRow && n - r > 1);
+            }
+            int c = queens[pick];
+            queens[pick] = queens[r];
+            queens[r] = c;
+            add(r, c);
+        }
+    }
+
+    /*
+     * Work list of rows that may be attacked; every attacked row is tried
+     * against SWAP_TRIES random partners per visit and stays on the list until
+     * it is clear. Without any improvement for STALL_TRIES swaps: give up.
+     */
+    private boolean repair() {
+        int[] work = new int[n];
+        int size = 0;
+        for (int r = 0; r < n; r++) {
+            if (r != fixedRow && attacked(r, queens[r])) work[size++] = r;
+        }
+        long failures = 0;
+        while (collisions > 0) {
+            if (size == 0) {                // queens that became attacked without being swapped
+                for (int r = 0; r < n; r++) {
+                    if (r != fixedRow && attacked(r, queens[r])) work[size++] = r;
+                }
+            }
+            int k = rnd.nextInt(size);
+            int i = work[k];
+            if (!attacked(i, queens[i])) {
+                work[k] = work[--size];
+                continue;
+            }
+            boolean moved = false;
+            for (int t = 0; t < SWAP_TRIES && !moved; t++) {
+                int j = rnd.nextInt(n);
+                if (j == i || j == fixedRow) continue;
+                if (trySwap(i, j)) {
+                    swaps++;
+                    moved = true;
+                    if (attacked(j, queens[j]) && size < n) work[size++] = j;
+                }
+            }
+            if (moved) {
+                failures = 0;
+            } else if (++failures > STALL_TRIES) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Swap the columns of rows i and j if that lowers the collisions
+    private boolean trySwap(int i, int j) {
+        int ci = queens[i], cj = queens[j];
+        long before = collisions;
+        remove(i, ci);
+        remove(j, cj);
+        add(i, cj);
+        add(j, ci);
+        if (collisions < before) {
+            queens[i] = cj;
+            queens[j] = ci;
+            return true;
+        }
+        remove(i, cj);
+        remove(j, ci);
+        add(i, ci);
+        add(j, cj);
+        return false;
+    }
+
+    // O(N) check: a permutation with every diagonal used at most once and the fixed queen in place
+    static boolean valid(int[] queens, int fixedRow, int fixedCol) {
+        int n = queens.length;
+        if (queens[fixedRow] != fixedCol) return false;
+        boolean[] col = new boolean[n], down = new boolean[2 * n - 1], up = new boolean[2 * n - 1];
+        for (int r = 0; r < n; r++) {
+            int c = queens[r];
+            if (col[c] || down[r + c] || up[r - c + n - 1]) return false;
+            col[c] = down[r + c] = up[r - c + n - 1] = true;
+        }
+        return true;
+    }
+
+    /*
+     * java NQueensMinConflicts [N ...]   time to solution for each N (default
+     *                                     10^5, 10^6, 3*10^6, 10^7), queen fixed at (N/3, N/2)
+     */
+    public static void main(String[] args) {
+        int[] sizes = {100_000, 1_000_000, 3_000_000, 10_000_000};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++)
+                sizes[i] = Integer.parseInt(args[i]);
+        }
+        solve(100_000, 0, 0);       // JIT warm-up
+        System.out.printf("%10s | %10s | %10s | %12s | %8s%n", "N", "greedy ms", "total ms", "repair swaps", "MB");
+        for (int n : sizes) {
+            int fr = n / 3, fc = n / 2;
+            NQueensMinConflicts s = new NQueensMinConflicts(n, fr, fc, 42);
+            long t0 = System.nanoTime();
+            s.greedyStart();
+            long t1 = System.nanoTime();
+            long start = s.collisions;
+            boolean ok = s.repair();
+            int[] q = ok ? s.queens : solve(n, fr, fc, 43);     // rare: needed a restart
+            long t2 = System.nanoTime();
+            if (q == null || !valid(q, fr, fc)) throw new IllegalStateException("no valid solution for N=" + n);
+            System.out.printf("%10d | %10.1f | %10.1f | %12d | %8.1f   (%d collisions after the greedy start)%n",
+                    n, (t1 - t0) / 1e6, (t2 - t0) / 1e6, s.swaps, (6.0 * n - 2) * 4 / (1 << 20), start);
+        }
+    }
+}
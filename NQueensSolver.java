@@ -0,0 +1,321 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/*
+ * ------------------ REENTRANT N-QUEENS SOLVER ------------------
+ * NQueensFixed keeps N, board, fixedRow and fixedCol in static fields, so a
+ * JVM can run one solve at a time and every caller must take a lock. Here a
+ * solver object holds one board's constraints:
+ *
+ *   - any number of pre-placed queens  (place(row, col))
+ *   - any number of blocked squares    (block(row, col))
+ *
+ * and solve()/count() keep their search state in locals, so different
+ * solvers, or even the same one, can run on many threads at once. The search
+ * is the bitboard search of NQueensBitboard: per row a mask of squares that
+ * are blocked or attacked by a pre-placed queen, the rows with a pre-placed
+ * queen only try its column.
+ *
+ * solveAll() runs a batch of solvers on a ForkJoinPool (the JDK this code
+ * targets has no virtual threads; the jobs are CPU-bound anyway).
+ *
+ * solutions() / stream() enumerate every solution lazily: the search keeps
+ * its position on an explicit stack and only runs when the next solution is
+ * pulled, so a consumer can stop after k or walk through millions while
+ * holding one at a time.
+ */
+public class NQueensSolver {
+
+    // Boards per task below which a batch is not split further
+    static final int BATCH_GRAIN = 16;
+
+    final int n;
+    final long full;
+    final long[] forbidden;     // per row: blocked squares | squares attacked by pre-placed queens
+    final int[] preplaced;      // per row: column of its pre-placed queen, or -1
+    boolean impossible;         // two pre-placed queens attack each other, or one sits on a blocked square
+
+    public NQueensSolver(int n) {
+        if (n < 1 || n > NQueensBitboard.LONG_LIMIT) throw new IllegalArgumentException("n must be 1..64");
+        this.n = n;
+        full = n == 64 ? -1L : (1L << n) - 1;
+        forbidden = new long[n];
+        preplaced = new int[n];
+        java.util.Arrays.fill(preplaced, -1);
+    }
+
+    public void place(int row, int col) {
+        check(row, col);
+        if (preplaced[row] >= 0 || (forbidden[row] >>> col & 1) != 0) impossible = true;
+        preplaced[row] = col;
+        long[] attacks = NQueensBitboard.fixedAttacks(n, row, col);
+        for (int r = 0; r < n; r++) {
+            if (r != row) forbidden[r] |= attacks[r];
+        }
+    }
+
+    public void block(int row, int col) {
+        check(row, col);
+        if (preplaced[row] == col) impossible = true;
+        forbidden[row] |= 1L << col;
+    }
+
+    private void check(int row, int col) {
+        if (row < 0 || row >= n || col < 0 || col >= n)
+            throw new IllegalArgumentException("(" + row + "," + col + ") is not on the board");
+    }
+
+    // queens[row] = column, or null when no placement satisfies the constraints
+    public int[] solve() {
+        if (impossible) return null;
+        int[] queens = new int[n];
+        return place(0, 0, 0, 0, queens) ? queens : null;
+    }
+
+    public long count() {
+        return impossible ? 0 : count(0, 0, 0, 0);
+    }
+
+    private long free(int row, long cols, long left, long right) {
+        long free = ~(cols | left | right | forbidden[row]) & full;
+        return preplaced[row] >= 0 ? free & (1L << preplaced[row]) : free;
+    }
+
+    private boolean place(int row, long cols, long left, long right, int[] queens) {
+        if (row == n) return true;
+        long free = free(row, cols, left, right);
+        while (free != 0) {
+            long bit = free & -free;
+            free ^= bit;
+            queens[row] = Long.numberOfTrailingZeros(bit);
+            if (place(row + 1, cols | bit, (left | bit) >>> 1, ((right | bit) << 1) & full, queens))
+                return true;
+        }
+        return false;
+    }
+
+    private long count(int row, long cols, long left, long right) {
+        if (row == n) return 1;
+        long free = free(row, cols, left, right);
+        long solutions = 0;
+        while (free != 0) {
+            long bit = free & -free;
+            free ^= bit;
+            solutions += count(row + 1, cols | bit, (left | bit) >>> 1, ((right | bit) << 1) & full);
+        }
+        return solutions;
+    }
+
+    // ---------------------------------------------------------------- enumeration
+
+    // Every solution (queens[row] = column) in column order of row 0, row 1, ...
+    public Iterator<int[]> solutions() {
+        return new SolutionIterator();
+    }
+
+    public Stream<int[]> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(solutions(),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+
+    /*
+     * The recursive search unrolled: for each row the masks it was entered
+     * with and the free squares not tried yet. Finding the next solution
+     * resumes from the last row exactly where the previous one stopped.
+     */
+    final class SolutionIterator implements Iterator<int[]> {
+        final long[] colsAt = new long[n], leftAt = new long[n], rightAt = new long[n], freeAt = new long[n];
+        final int[] queens = new int[n];
+        int row;                // deepest row with an open frame, -1 when the search is over
+        int[] next;
+
+        SolutionIterator() {
+            row = impossible ? -1 : 0;
+            if (row == 0) freeAt[0] = free(0, 0, 0, 0);
+        }
+
+        private int[] advance() {
+            while (row >= 0) {
+                long free = freeAt[row];
+                if (free == 0) {
+                    row--;
+                    continue;
+                }
+                long bit = free & -free;
+                freeAt[row] = free ^ bit;
+                queens[row] = Long.numberOfTrailingZeros(bit);
+                if (row == n - 1) return queens.clone();
+                long cols = colsAt[row] | bit;
+                long left = (leftAt[row] | bit) >>> 1;
+                long right = ((rightAt[row] | bit) << 1) & full;
+                row++;
+                colsAt[row] = cols;
+                leftAt[row] = left;
+                rightAt[row] = right;
+                freeAt[row] = free(row, cols, left, right);
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) next = advance();
+            return next != null;
+        }
+
+        @Override
+        public int[] next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            int[] q = next;
+            next = null;
+            return q;
+        }
+    }
+
+    // Does queens[] satisfy this solver's constraints?
+    boolean satisfies(int[] queens) {
+        if (queens == null || queens.length != n) return false;
+        for (int c : queens) {
+            if (c < 0 || c >= n) return false;
+        }
+        if (!NQueensBitboard.nonAttacking(queens)) return false;
+        for (int r = 0; r < n; r++) {
+            if (preplaced[r] >= 0 && queens[r] != preplaced[r]) return false;
+            if ((forbidden[r] >>> queens[r] & 1) != 0 && preplaced[r] != queens[r]) return false;
+        }
+        return true;
+    }
+
+    // ---------------------------------------------------------------- batch
+
+    // results[i] = jobs.get(i).solve()
+    public static int[][] solveAll(List<NQueensSolver> jobs, ForkJoinPool pool) {
+        int[][] results = new int[jobs.size()][];
+        pool.invoke(new BatchTask(jobs, results, 0, jobs.size()));
+        return results;
+    }
+
+    static final class BatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final List<NQueensSolver> jobs;
+        final int[][] results;
+        final int from, to;
+
+        BatchTask(List<NQueensSolver> jobs, int[][] results, int from, int to) {
+            this.jobs = jobs;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BATCH_GRAIN) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new BatchTask(jobs, results, from, mid), new BatchTask(jobs, results, mid, to));
+                return;
+            }
+            for (int i = from; i < to; i++)
+                results[i] = jobs.get(i).solve();
+        }
+    }
+
+    // NQueensFixed's statics allow one solve at a time: every caller has to hold this lock
+    private static final Object STATIC_SOLVER = new Object();
+
+    static int[] solveWithStatics(int n, int fixedCol) {
+        synchronized (STATIC_SOLVER) {
+            return NQueensBitboard.solveWithBoard(n, 0, fixedCol);
+        }
+    }
+
+    /*
+     * Benchmark:
+     *   1. 4000 random boards N = 12..16 with 1-3 pre-placed queens and ~10%
+     *      blocked squares, batch on 1 thread and on all cores
+     *   2. single fixed queen in row 0: NQueensFixed behind its lock vs this
+     *      solver, both driven by the same number of threads
+     *   3. lazy enumeration: the first solutions of a big board, a full count
+     *      through the stream
+     */
+    public static void main(String[] args) throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        Random rnd = new Random(3);
+        List<NQueensSolver> jobs = new ArrayList<>();
+        for (int k = 0; k < 4000; k++) {
+            int n = 12 + rnd.nextInt(5);
+            NQueensSolver s = new NQueensSolver(n);
+            int queens = 1 + rnd.nextInt(3);
+            for (int q = 0; q < queens; q++) {
+                int r = rnd.nextInt(n), c = rnd.nextInt(n);
+                if (s.preplaced[r] < 0 && (s.forbidden[r] >>> c & 1) == 0) s.place(r, c);
+            }
+            for (int b = 0; b < n * n / 10; b++) {
+                int r = rnd.nextInt(n), c = rnd.nextInt(n);
+                if (s.preplaced[r] != c) s.block(r, c);
+            }
+            jobs.add(s);
+        }
+
+        ForkJoinPool one = new ForkJoinPool(1), all = new ForkJoinPool(cores);
+        solveAll(jobs.subList(0, 200), all);        // JIT warm-up
+        long t0 = System.nanoTime();
+        int[][] a = solveAll(jobs, one);
+        long t1 = System.nanoTime();
+        int[][] b = solveAll(jobs, all);
+        long t2 = System.nanoTime();
+        int solved = 0;
+        for (int i = 0; i < jobs.size(); i++) {
+            if (!java.util.Arrays.equals(a[i], b[i])) throw new IllegalStateException("runs disagree on job " + i);
+            if (a[i] != null) {
+                solved++;
+                if (!jobs.get(i).satisfies(a[i])) throw new IllegalStateException("job " + i + " broke a constraint");
+            } else if (i < 100 && jobs.get(i).count() != 0) {
+                throw new IllegalStateException("job " + i + " has solutions but solve() found none");
+            }
+        }
+        System.out.printf("%d boards (%d solvable): 1 thread %.1f ms, %d threads %.1f ms (%.2fx)%n",
+                jobs.size(), solved, (t1 - t0) / 1e6, cores, (t2 - t1) / 1e6, (double) (t1 - t0) / (t2 - t1));
+
+        List<NQueensSolver> single = new ArrayList<>();
+        int[] cols = new int[400];
+        for (int k = 0; k < cols.length; k++) {
+            cols[k] = rnd.nextInt(14);
+            NQueensSolver s = new NQueensSolver(14);
+            s.place(0, cols[k]);
+            single.add(s);
+        }
+        t0 = System.nanoTime();
+        all.submit(() -> java.util.Arrays.stream(cols).parallel().forEach(c -> solveWithStatics(14, c))).get();
+        t1 = System.nanoTime();
+        solveAll(single, all);
+        t2 = System.nanoTime();
+        System.out.printf("%d boards N=14, one fixed queen, %d threads: NQueensFixed (locked) %.1f ms, "
+                + "instance solver %.1f ms%n", cols.length, cores, (t1 - t0) / 1e6, (t2 - t1) / 1e6);
+        one.shutdown();
+        all.shutdown();
+
+        NQueensSolver twelve = new NQueensSolver(12);
+        if (twelve.stream().count() != twelve.count()) throw new IllegalStateException("stream misses solutions");
+        NQueensSolver eight = new NQueensSolver(8);
+        eight.place(0, 0);
+        eight.stream().forEach(q -> System.out.println("8 queens, (0,0) fixed: " + java.util.Arrays.toString(q)));
+
+        NQueensSolver big = new NQueensSolver(20);
+        big.block(0, 0);
+        t0 = System.nanoTime();
+        long seen = big.stream().limit(100_000).filter(big::satisfies).count();
+        t1 = System.nanoTime();
+        System.out.printf("N=20: first %d of ~3.9 * 10^10 solutions in %.1f ms%n", seen, (t1 - t0) / 1e6);
+    }
+}
@@ -0,0 +1,204 @@
+import java.util.Random;
+
+/*
+ * ------------------ BOUNDED AND UNBOUNDED KNAPSACK ------------------
+ * Item i may be taken up to count[i] times (bounded) or any number of times
+ * (unbounded). Writing count[i] copies into zerooneknapsack's val[] / wt[]
+ * works but makes n the total count: thousands of units per item type
+ * multiply the O(nW) by thousands. All engines below update one rolling row
+ * dp[0..W] per item type, like rollingknapsack:
+ *
+ *   binary splitting   c = 1 + 2 + 4 + ... + rest: one 0/1 item (k v, k w)
+ *                      per part, any 0..c is a sum of parts, so relax01 on
+ *                      ceil(log2(c + 1)) items                O(W log c)
+ *
+ *   monotone queue     capacities j = r, r + w, r + 2w, ... (one residue r
+ *                      mod w) only talk to each other. With a[t] = dp[r + t w]:
+ *
+ *                          new a[t] = t v + max over s in [t - c, t] of (a[s] - s v)
+ *
+ *                      a sliding-window maximum, kept in a deque   O(W)
+ *
+ *   unbounded          relax01 walked upwards: dp[j - w] may already
+ *                      contain the item, so it is taken again  O(W)
+ *
+ * maxProfit() picks per item type: unbounded when c w >= W (the count never
+ * binds), binary splitting for small c, the queue otherwise.
+ */
+public class boundedknapsack {
+
+    // Counts above this go to the monotone queue, smaller ones to binary splitting
+    static final int QUEUE_MIN_COUNT = 16;
+
+    // ---------------------------------------------------------------- per-item passes
+
+    // Item (v, w) any number of times (capacities upwards)
+    static void relaxUnbounded(long[] dp, int W, long v, int w) {
+        for (int j = w; j <= W; j++) {
+            long take = dp[j - w] + v;
+            if (take > dp[j]) dp[j] = take;
+        }
+    }
+
+    // Item (v, w) up to c times as log2(c) 0/1 items
+    static void relaxBinary(long[] dp, int W, long v, int w, int c) {
+        for (int k = 1; c > 0; k <<= 1) {
+            int part = Math.min(k, c);
+            c -= part;
+            if ((long) part * w <= W) rollingknapsack.relax01(dp, W, part * v, part * w);
+        }
+    }
+
+    // Item (v, w) up to c times with a sliding-window maximum per residue; key and deque hold >= W / w + 1
+    static void relaxQueue(long[] dp, int W, long v, int w, int c, long[] key, int[] deque) {
+        if (w == 0) {
+            rollingknapsack.relax01(dp, W, c * v, 0);
+            return;
+        }
+        for (int r = 0; r < w && r <= W; r++) {
+            int head = 0, tail = 0;
+            for (int t = 0, j = r; j <= W; t++, j += w) {
+                key[t] = dp[j] - t * v;             // read before dp[j] is overwritten
+                while (tail > head && key[deque[tail - 1]] <= key[t]) tail--;
+                deque[tail++] = t;
+                if (deque[head] < t - c) head++;
+                dp[j] = key[deque[head]] + t * v;
+            }
+        }
+    }
+
+    static void check(long[] val, int[] wt, int[] count, int W) {
+        rollingknapsack.check(val, wt, W);
+        if (count.length != val.length) throw new IllegalArgumentException("count and val differ in length");
+        for (int c : count) {
+            if (c < 0) throw new IllegalArgumentException("counts must be >= 0");
+        }
+    }
+
+    // ---------------------------------------------------------------- API
+
+    public static long maxProfit(long[] val, int[] wt, int[] count, int W) {
+        check(val, wt, count, W);
+        long[] dp = new long[W + 1];
+        long[] key = null;
+        int[] deque = null;
+        for (int i = 0; i < val.length; i++) {
+            int w = wt[i], c = count[i];
+            if (c == 0 || w > W || val[i] <= 0) continue;
+            if (w > 0 && (long) c * w >= W) {
+                relaxUnbounded(dp, W, val[i], w);
+            } else if (c < QUEUE_MIN_COUNT) {
+                relaxBinary(dp, W, val[i], w, c);
+            } else {
+                if (key == null) {
+                    key = new long[W + 1];
+                    deque = new int[W + 1];
+                }
+                relaxQueue(dp, W, val[i], w, c, key, deque);
+            }
+        }
+        return dp[W];
+    }
+
+    public static long maxProfitBinary(long[] val, int[] wt, int[] count, int W) {
+        check(val, wt, count, W);
+        long[] dp = new long[W + 1];
+        for (int i = 0; i < val.length; i++) {
+            if (wt[i] <= W && val[i] > 0) relaxBinary(dp, W, val[i], wt[i], count[i]);
+        }
+        return dp[W];
+    }
+
+    public static long maxProfitQueue(long[] val, int[] wt, int[] count, int W) {
+        check(val, wt, count, W);
+        long[] dp = new long[W + 1], key = new long[W + 1];
+        int[] deque = new int[W + 1];
+        for (int i = 0; i < val.length; i++) {
+            if (wt[i] <= W && val[i] > 0) relaxQueue(dp, W, val[i], wt[i], count[i], key, deque);
+        }
+        return dp[W];
+    }
+
+    public static long maxProfitUnbounded(long[] val, int[] wt, int W) {
+        rollingknapsack.check(val, wt, W);
+        long[] dp = new long[W + 1];
+        for (int i = 0; i < val.length; i++) {
+            if (wt[i] > W || val[i] <= 0) continue;
+            if (wt[i] == 0) throw new IllegalArgumentException("unbounded item " + i + " has weight 0 and positive value");
+            relaxUnbounded(dp, W, val[i], wt[i]);
+        }
+        return dp[W];
+    }
+
+    // count[i] copies of every item fed to rollingknapsack: the baseline
+    static long expanded(long[] val, int[] wt, int[] count, int W) {
+        long total = 0;
+        for (int c : count) total += c;
+        long[] v = new long[(int) total];
+        int[] w = new int[(int) total];
+        for (int i = 0, k = 0; i < val.length; i++) {
+            for (int j = 0; j < count[i]; j++, k++) {
+                v[k] = val[i];
+                w[k] = wt[i];
+            }
+        }
+        return rollingknapsack.maxProfit(v, w, W);
+    }
+
+    /*
+     * Demo: random checks of every engine against the expanded 0/1 instance
+     * (and unbounded against counts of W / w), then a benchmark with counts
+     * in the thousands.
+     */
+    public static void main(String[] args) {
+        Random rnd = new Random(25);
+        for (int t = 0; t < 300; t++) {
+            int n = 1 + rnd.nextInt(8), W = rnd.nextInt(400);
+            long[] val = new long[n];
+            int[] wt = new int[n], count = new int[n], all = new int[n];
+            for (int i = 0; i < n; i++) {
+                val[i] = rnd.nextInt(100);
+                wt[i] = rnd.nextInt(60);
+                count[i] = rnd.nextInt(t % 3 == 0 ? 3 : 40);
+                all[i] = wt[i] == 0 ? 1 : W / wt[i] + 1;
+                if (wt[i] == 0) val[i] = 0;         // unbounded would be infinite
+            }
+            long expected = expanded(val, wt, count, W);
+            if (maxProfit(val, wt, count, W) != expected || maxProfitBinary(val, wt, count, W) != expected
+                    || maxProfitQueue(val, wt, count, W) != expected)
+                throw new IllegalStateException("wrong bounded answer on random instance " + t);
+            if (maxProfitUnbounded(val, wt, W) != expanded(val, wt, all, W))
+                throw new IllegalStateException("wrong unbounded answer on random instance " + t);
+        }
+
+        int n = 40, W = 100_000;
+        long[] val = new long[n];
+        int[] wt = new int[n], count = new int[n];
+        long units = 0;
+        for (int i = 0; i < n; i++) {
+            wt[i] = 10 + rnd.nextInt(50);
+            val[i] = wt[i] + rnd.nextInt(200);
+            count[i] = 500 + rnd.nextInt(1500);
+            if ((long) count[i] * wt[i] >= W) count[i] = W / wt[i] / 2;     // keep every count binding
+            units += count[i];
+        }
+        System.out.printf("%d item types, %d units in total, W=%d%n", n, units, W);
+        maxProfitBinary(val, wt, count, W / 10);      // JIT warm-up
+        maxProfitQueue(val, wt, count, W / 10);
+        long expected = -1;
+        for (int m = 0; m < 4; m++) {
+            long t0 = System.nanoTime();
+            long got = m == 0 ? expanded(val, wt, count, W) : m == 1 ? maxProfitBinary(val, wt, count, W)
+                    : m == 2 ? maxProfitQueue(val, wt, count, W) : maxProfit(val, wt, count, W);
+            double ms = (System.nanoTime() - t0) / 1e6;
+            if (m == 0) expected = got;
+            else if (got != expected) throw new IllegalStateException("engines disagree");
+            String name = m == 0 ? "naive expansion" : m == 1 ? "binary splitting" : m == 2 ? "monotone queue" : "maxProfit";
+            System.out.printf("  %-18s profit %d in %8.1f ms%n", name, got, ms);
+        }
+        long t0 = System.nanoTime();
+        long unbounded = maxProfitUnbounded(val, wt, W);
+        System.out.printf("  %-18s profit %d in %8.1f ms (same items, no counts)%n", "unbounded", unbounded,
+                (System.nanoTime() - t0) / 1e6);
+    }
+}
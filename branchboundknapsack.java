@@ -0,0 +1,415 @@
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * ------------------ BRANCH AND BOUND 0/1 KNAPSACK (FRACTIONAL BOUND) ------------------
+ * fractionalknapsack.maxprofit is exactly the LP relaxation of the 0/1
+ * problem: no set of whole items beats it. So a search over take / skip
+ * decisions can cut every subtree whose fractional bound is not above the
+ * best whole-item solution found so far, and never needs a W-sized table:
+ *
+ *   - the items are sorted by value / weight once (exact cross products of
+ *     the int fields, not the rounded double Item.ratio); the bound of a
+ *     node at level k with room r and profit p is
+ *
+ *         p + (items k, k+1, ... that fit whole) + fraction of the first that does not
+ *
+ *     found with a binary search over prefix sums of weight and value
+ *   - taking item k when it fits leaves that greedy fill (and the bound)
+ *     unchanged, so only the skip branch computes a new bound
+ *   - the greedy whole-item fill is the first incumbent
+ *
+ * Modes:
+ *   DEPTH_FIRST  take before skip, memory O(n), finds good solutions at once
+ *   BEST_FIRST   always expands the open node with the highest bound: fewest
+ *                nodes, but the open list can grow large
+ *   solveParallel()  the depth-first search with the top levels split into
+ *                ForkJoin tasks; idle threads steal subtrees, all share the
+ *                incumbent
+ *
+ * Worst case exponential (strongly correlated profits defeat the bound), in
+ * return independent of W: W = 10^12 costs the same as W = 10^3.
+ */
+public class branchboundknapsack {
+
+    // Levels above this are split into ForkJoin tasks
+    static final int FORK_DEPTH = 14;
+
+    enum Mode { DEPTH_FIRST, BEST_FIRST }
+
+    static final class Result {
+        final long profit;
+        final int[] items;      // indices into the caller's array, ascending
+        final long nodes;
+
+        Result(long profit, int[] items, long nodes) {
+            this.profit = profit;
+            this.items = items;
+            this.nodes = nodes;
+        }
+    }
+
+    // One instance: the items in ratio order, prefix sums and the shared incumbent
+    static final class Search {
+        final int n;
+        final int[] index;          // sorted position -> caller's index
+        final long[] v, w, sumW, sumV;
+        final long W;
+        final LongAdder nodes = new LongAdder();
+        volatile long best;
+        boolean[] bestPath;
+
+        Search(fractionalknapsack.Item[] items, long W) {
+            this.W = W;
+            int[] order = new int[items.length];
+            int k = 0;
+            for (int i = 0; i < items.length; i++) {
+                if (items[i].value > 0 && items[i].weight <= W) order[k++] = i;
+            }
+            n = k;
+            sortByRatio(order, n, items);
+            index = new int[n];
+            v = new long[n];
+            w = new long[n];
+            sumW = new long[n + 1];
+            sumV = new long[n + 1];
+            for (int i = 0; i < n; i++) {
+                index[i] = order[i];
+                v[i] = items[order[i]].value;
+                w[i] = items[order[i]].weight;
+                sumW[i + 1] = sumW[i] + w[i];
+                sumV[i + 1] = sumV[i] + v[i];
+            }
+            // Greedy incumbent: whole items in ratio order, skipping those that do not fit
+            boolean[] path = new boolean[n];
+            long room = W, profit = 0;
+            for (int i = 0; i < n; i++) {
+                if (w[i] <= room) {
+                    path[i] = true;
+                    room -= w[i];
+                    profit += v[i];
+                }
+            }
+            best = profit;
+            bestPath = path;
+        }
+
+        // Negative when a goes before b: a.value / a.weight > b.value / b.weight (zero weights first)
+        static int ratioOrder(fractionalknapsack.Item a, fractionalknapsack.Item b) {
+            return Long.compare((long) b.value * a.weight, (long) a.value * b.weight);     // int * int fits a long
+        }
+
+        // Bottom-up merge sort of order[0..n) by ratioOrder: stable, on the int[] itself
+        static void sortByRatio(int[] order, int n, fractionalknapsack.Item[] items) {
+            int[] a = order, b = new int[n];
+            for (int run = 1; run < n; run *= 2) {
+                for (int lo = 0; lo < n; lo += 2 * run) {
+                    int mid = Math.min(lo + run, n), hi = Math.min(lo + 2 * run, n);
+                    for (int i = lo, j = mid, t = lo; t < hi; t++) {
+                        if (j == hi || i < mid && ratioOrder(items[a[i]], items[a[j]]) <= 0) b[t] = a[i++];
+                        else b[t] = a[j++];
+                    }
+                }
+                int[] swap = a;
+                a = b;
+                b = swap;
+            }
+            if (a != order) System.arraycopy(a, 0, order, 0, n);
+        }
+
+        // Fractional fill of items [k, n) into room (rounded down: profits are integers)
+        long bound(int k, long room) {
+            int lo = k, hi = n;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (sumW[mid] - sumW[k] <= room) lo = mid;
+                else hi = mid - 1;
+            }
+            long fill = sumV[lo] - sumV[k];
+            if (lo < n) fill += (room - (sumW[lo] - sumW[k])) * v[lo] / w[lo];   // room left < w[lo] < 2^31
+            return fill;
+        }
+
+        synchronized void offer(long profit, boolean[] path) {
+            if (profit <= best) return;
+            best = profit;
+            bestPath = path.clone();
+        }
+
+        /*
+         * Depth first below level `from`; path[0..from) holds the decisions so
+         * far, path[from..n) is false. The recursion is kept on an explicit
+         * stack (one frame per level, n can be 10^5): stage 0 = entered,
+         * 1 = take branch done, 2 = skip branch done.
+         */
+        long dfs(int from, long room0, long profit0, long bound0, boolean[] path) {
+            int depth = n - from + 1;
+            long[] room = new long[depth], profit = new long[depth], bound = new long[depth];
+            byte[] stage = new byte[depth];
+            room[0] = room0;
+            profit[0] = profit0;
+            bound[0] = bound0;
+            long visited = 0;
+            int d = 0;
+            while (d >= 0) {
+                int k = from + d;
+                if (stage[d] == 0) {
+                    visited++;
+                    if (profit[d] > best) offer(profit[d], path);
+                    if (k == n || bound[d] <= best) {
+                        d--;
+                        continue;
+                    }
+                    stage[d] = 1;
+                    if (w[k] <= room[d]) {          // take: the greedy fill, so the bound is unchanged
+                        path[k] = true;
+                        room[d + 1] = room[d] - w[k];
+                        profit[d + 1] = profit[d] + v[k];
+                        bound[d + 1] = bound[d];
+                        stage[++d] = 0;
+                    }
+                } else if (stage[d] == 1) {
+                    path[k] = false;
+                    stage[d] = 2;
+                    long skip = profit[d] + bound(k + 1, room[d]);
+                    if (skip > best) {
+                        room[d + 1] = room[d];
+                        profit[d + 1] = profit[d];
+                        bound[d + 1] = skip;
+                        stage[++d] = 0;
+                    }
+                } else {
+                    d--;
+                }
+            }
+            return visited;
+        }
+
+        Result result() {
+            int count = 0;
+            for (boolean t : bestPath) {
+                if (t) count++;
+            }
+            int[] items = new int[count];
+            for (int i = 0, c = 0; i < n; i++) {
+                if (bestPath[i]) items[c++] = index[i];
+            }
+            java.util.Arrays.sort(items);
+            return new Result(best, items, nodes.sum());
+        }
+    }
+
+    // ---------------------------------------------------------------- API
+
+    public static Result solve(fractionalknapsack.Item[] items, long W, Mode mode) {
+        if (W < 0) throw new IllegalArgumentException("capacity must be >= 0");
+        Search s = new Search(items, W);
+        if (mode == Mode.DEPTH_FIRST) s.nodes.add(s.dfs(0, W, 0, s.bound(0, W), new boolean[s.n]));
+        else bestFirst(s);
+        return s.result();
+    }
+
+    public static Result solveParallel(fractionalknapsack.Item[] items, long W, ForkJoinPool pool) {
+        if (W < 0) throw new IllegalArgumentException("capacity must be >= 0");
+        Search s = new Search(items, W);
+        pool.invoke(new SubtreeTask(s, 0, W, 0, s.bound(0, W), new boolean[s.n]));
+        return s.result();
+    }
+
+    // ---------------------------------------------------------------- best first
+
+    // Taken items as a list shared between nodes: each node adds at most one cell
+    static final class Taken {
+        final int item;
+        final Taken prev;
+
+        Taken(int item, Taken prev) {
+            this.item = item;
+            this.prev = prev;
+        }
+    }
+
+    static final class Node {
+        final int level;
+        final long room, profit, bound;
+        final Taken taken;
+
+        Node(int level, long room, long profit, long bound, Taken taken) {
+            this.level = level;
+            this.room = room;
+            this.profit = profit;
+            this.bound = bound;
+            this.taken = taken;
+        }
+    }
+
+    static void bestFirst(Search s) {
+        // Highest bound first; among equal bounds the deeper node, to reach leaves sooner
+        PriorityQueue<Node> open = new PriorityQueue<>((a, b) ->
+                a.bound != b.bound ? Long.compare(b.bound, a.bound) : Integer.compare(b.level, a.level));
+        open.add(new Node(0, s.W, 0, s.bound(0, s.W), null));
+        long visited = 1;
+        while (!open.isEmpty()) {
+            Node x = open.poll();
+            if (x.bound <= s.best) break;           // no open node can improve any more
+            if (x.level == s.n) continue;
+            int k = x.level;
+            if (s.w[k] <= x.room) {
+                Node take = new Node(k + 1, x.room - s.w[k], x.profit + s.v[k], x.bound, new Taken(k, x.taken));
+                visited++;
+                if (take.profit > s.best) {
+                    boolean[] path = new boolean[s.n];
+                    for (Taken t = take.taken; t != null; t = t.prev)
+                        path[t.item] = true;
+                    s.offer(take.profit, path);
+                }
+                if (take.bound > s.best) open.add(take);
+            }
+            long skip = x.profit + s.bound(k + 1, x.room);
+            if (skip > s.best) {
+                visited++;
+                open.add(new Node(k + 1, x.room, x.profit, skip, x.taken));
+            }
+        }
+        s.nodes.add(visited);
+    }
+
+    // ---------------------------------------------------------------- parallel
+
+    static final class SubtreeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final Search s;
+        final int k;
+        final long room, profit, bound;
+        final boolean[] path;
+
+        SubtreeTask(Search s, int k, long room, long profit, long bound, boolean[] path) {
+            this.s = s;
+            this.k = k;
+            this.room = room;
+            this.profit = profit;
+            this.bound = bound;
+            this.path = path;
+        }
+
+        @Override
+        protected void compute() {
+            if (k >= FORK_DEPTH || k == s.n) {
+                s.nodes.add(s.dfs(k, room, profit, bound, path));
+                return;
+            }
+            s.nodes.increment();
+            if (profit > s.best) s.offer(profit, path);
+            if (bound <= s.best) return;
+            SubtreeTask take = null, skip = null;
+            if (s.w[k] <= room) {
+                boolean[] p = path.clone();
+                p[k] = true;
+                take = new SubtreeTask(s, k + 1, room - s.w[k], profit + s.v[k], bound, p);
+            }
+            long skipBound = profit + s.bound(k + 1, room);
+            if (skipBound > s.best) skip = new SubtreeTask(s, k + 1, room, profit, skipBound, path);
+            if (take != null && skip != null) invokeAll(take, skip);
+            else if (take != null) take.compute();
+            else if (skip != null) skip.compute();
+        }
+    }
+
+    /*
+     * Benchmark: nodes and time of each mode against rollingknapsack's O(nW)
+     * row on instances the row can still handle, then W ~ 3 * 10^12, which it
+     * cannot. Every answer is checked against the others.
+     */
+    public static void main(String[] args) {
+        fractionalknapsack.Item[] example = {
+            new fractionalknapsack.Item(60, 10),
+            new fractionalknapsack.Item(100, 20),
+            new fractionalknapsack.Item(120, 30)
+        };
+        Result r = solve(example, 50, Mode.DEPTH_FIRST);
+        System.out.println("fractionalknapsack example, whole items only: " + r.profit
+                + " items " + java.util.Arrays.toString(r.items)
+                + " (fractional bound " + fractionalknapsack.maxprofit(example.clone(), 50) + ")");
+
+        Random rnd = new Random(23);
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        for (int t = 0; t < 300; t++) {
+            int n = 1 + rnd.nextInt(30), W = rnd.nextInt(500);
+            fractionalknapsack.Item[] items = random(rnd, n, 100, t % 2 == 1);
+            long expected = dp(items, W);
+            for (Result x : new Result[]{solve(items, W, Mode.DEPTH_FIRST), solve(items, W, Mode.BEST_FIRST),
+                    solveParallel(items, W, pool)}) {
+                long weight = 0, profit = 0;
+                for (int i : x.items) {
+                    weight += items[i].weight;
+                    profit += items[i].value;
+                }
+                if (x.profit != expected || profit != expected || weight > W)
+                    throw new IllegalStateException("wrong answer on random instance " + t);
+            }
+        }
+
+        System.out.println("instance                        mode            profit  nodes/cells     ms");
+        bench("uncorrelated n=200 W~10^7", random(rnd, 200, 100_000, false), 0.5, true, pool);
+        bench("weakly corr. n=200 W~10^7", random(rnd, 200, 100_000, true), 0.5, true, pool);
+        bench("uncorrelated n=10^4 W~3*10^12", randomLarge(rnd, 10_000), 0.3, false, pool);
+        pool.shutdown();
+    }
+
+    // Weights 1..maxW; profits random or (correlated) weight +- 10%
+    static fractionalknapsack.Item[] random(Random rnd, int n, int maxW, boolean correlated) {
+        fractionalknapsack.Item[] items = new fractionalknapsack.Item[n];
+        for (int i = 0; i < n; i++) {
+            int w = 1 + rnd.nextInt(maxW);
+            int v = correlated ? Math.max(1, w + rnd.nextInt(w / 5 + 1) - w / 10) : 1 + rnd.nextInt(maxW);
+            items[i] = new fractionalknapsack.Item(v, w);
+        }
+        return items;
+    }
+
+    // Weights up to 2 * 10^9: a capacity no table can cover
+    static fractionalknapsack.Item[] randomLarge(Random rnd, int n) {
+        fractionalknapsack.Item[] items = new fractionalknapsack.Item[n];
+        for (int i = 0; i < n; i++)
+            items[i] = new fractionalknapsack.Item(1 + rnd.nextInt(Integer.MAX_VALUE - 1), 1 + rnd.nextInt(2_000_000_000));
+        return items;
+    }
+
+    static long dp(fractionalknapsack.Item[] items, int W) {
+        long[] val = new long[items.length];
+        int[] wt = new int[items.length];
+        for (int i = 0; i < items.length; i++) {
+            val[i] = items[i].value;
+            wt[i] = items[i].weight;
+        }
+        return rollingknapsack.maxProfit(val, wt, W);
+    }
+
+    // W = fraction of the total weight
+    static void bench(String name, fractionalknapsack.Item[] items, double fraction, boolean withDp, ForkJoinPool pool) {
+        long total = 0;
+        for (fractionalknapsack.Item it : items) total += it.weight;
+        long W = (long) (total * fraction);
+        long expected = -1;
+        if (withDp) {
+            long t0 = System.nanoTime();
+            expected = dp(items, (int) W);
+            System.out.printf("%-31s %-12s %12d %12d %8.1f%n", name, "DP row", expected, (long) items.length * (W + 1),
+                    (System.nanoTime() - t0) / 1e6);
+        }
+        for (int m = 0; m < 3; m++) {
+            long t0 = System.nanoTime();
+            Result r = m == 0 ? solve(items, W, Mode.DEPTH_FIRST) : m == 1 ? solve(items, W, Mode.BEST_FIRST)
+                    : solveParallel(items, W, pool);
+            long t1 = System.nanoTime();
+            if (expected >= 0 && r.profit != expected) throw new IllegalStateException(name + ": wrong profit");
+            expected = r.profit;
+            String mode = m == 0 ? "depth first" : m == 1 ? "best first" : "parallel x" + pool.getParallelism();
+            System.out.printf("%-31s %-12s %12d %12d %8.1f%n", name, mode, r.profit, r.nodes, (t1 - t0) / 1e6);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * ------------------ INCREMENTAL, MULTI-CAPACITY 0/1 KNAPSACK ------------------
+ * Asking zerooneknapsack.knapsack about the same items at k capacities costs
+ * k full tables, and every added or removed item starts over. But the
+ * rolling row of rollingknapsack already holds the answer for every
+ * capacity at once (dp[c] = best profit with weight <= c), and adding an
+ * item is one relax01 pass over it:
+ *
+ *   maxProfit(c)   dp[c]                                   O(1), any c <= Wmax
+ *   add(v, w)      relax01(dp, Wmax, v, w)                 O(Wmax)
+ *   removeLast(k)  dp = copy of the last checkpoint at or below size - k,
+ *                  then add() the items after it again     O(spacing * Wmax)
+ *
+ * A checkpoint is a copy of the row taken every `spacing` items (at first
+ * `interval`), so undoing never replays more than spacing - 1 items. mark()
+ * takes one at the current size: a what-if session marks once, and each
+ * "add a few, ask, removeLast" round then costs its adds plus one row copy.
+ *
+ * Memory is capped at the row plus maxCheckpoints rows, 8 (Wmax + 1) bytes
+ * each. When the budget is full, every other checkpoint is dropped (counting
+ * down from the newest, which is kept) and spacing doubles, so it stays
+ * around 2n / maxCheckpoints: a smaller budget trades replay time on removal
+ * for memory, as does a larger interval.
+ *
+ * Queries are O(1), but every added item is a pass over the whole row: a
+ * what-if round is bounded below by O(Wmax) per item it adds, not by the
+ * query. At Wmax = 10^5 a round of 5 adds takes 0.5-0.9 ms after mark()
+ * (a rebuild of 300 items takes 20-40 ms); microsecond rounds need a small Wmax.
+ *
+ * Not thread-safe: one planner session owns one solver.
+ */
+public class incrementalknapsack {
+
+    static final int DEFAULT_INTERVAL = 16;
+
+    static final int DEFAULT_MAX_CHECKPOINTS = 64;
+
+    final int Wmax, interval, maxCheckpoints;
+    final long[] dp;
+    final List<Checkpoint> saved = new ArrayList<>();  // ascending size
+    long[] val = new long[16];
+    int[] wt = new int[16];
+    int size, spacing;
+
+    // dp after the first `size` items
+    static final class Checkpoint {
+        final int size;
+        final long[] row;
+
+        Checkpoint(int size, long[] row) {
+            this.size = size;
+            this.row = row;
+        }
+    }
+
+    public incrementalknapsack(int Wmax) {
+        this(Wmax, DEFAULT_INTERVAL);
+    }
+
+    public incrementalknapsack(int Wmax, int interval) {
+        this(Wmax, interval, DEFAULT_MAX_CHECKPOINTS);
+    }
+
+    public incrementalknapsack(int Wmax, int interval, int maxCheckpoints) {
+        if (Wmax < 0) throw new IllegalArgumentException("capacity must be >= 0");
+        if (interval < 1) throw new IllegalArgumentException("checkpoint interval must be >= 1");
+        if (maxCheckpoints < 1) throw new IllegalArgumentException("checkpoint budget must be >= 1");
+        this.Wmax = Wmax;
+        this.interval = interval;
+        this.maxCheckpoints = maxCheckpoints;
+        spacing = interval;
+        dp = new long[Wmax + 1];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Best profit of the current items with total weight <= capacity
+    public long maxProfit(int capacity) {
+        if (capacity < 0 || capacity > Wmax) throw new IllegalArgumentException("capacity must be 0.." + Wmax);
+        return dp[capacity];
+    }
+
+    public long[] maxProfit(int[] capacities) {
+        long[] answers = new long[capacities.length];
+        for (int i = 0; i < capacities.length; i++)
+            answers[i] = maxProfit(capacities[i]);
+        return answers;
+    }
+
+    public void add(long v, int w) {
+        if (w < 0) throw new IllegalArgumentException("weights must be >= 0");
+        if (size == val.length) {
+            val = Arrays.copyOf(val, 2 * size);
+            wt = Arrays.copyOf(wt, 2 * size);
+        }
+        val[size] = v;
+        wt[size] = w;
+        size++;
+        if (w <= Wmax) rollingknapsack.relax01(dp, Wmax, v, w);
+        if (size % spacing == 0) mark();
+    }
+
+    // Checkpoint the current row: removals back to this size replay nothing
+    public void mark() {
+        if (!saved.isEmpty() && saved.get(saved.size() - 1).size == size) return;
+        saved.add(new Checkpoint(size, dp.clone()));
+        if (saved.size() > maxCheckpoints) thin();
+    }
+
+    // Keep every other checkpoint, the newest included, and take new ones twice as far apart
+    private void thin() {
+        List<Checkpoint> kept = new ArrayList<>(maxCheckpoints);
+        for (int i = (saved.size() - 1) % 2; i < saved.size(); i += 2)
+            kept.add(saved.get(i));
+        saved.clear();
+        saved.addAll(kept);
+        spacing *= 2;
+    }
+
+    public void removeLast(int k) {
+        if (k < 0 || k > size) throw new IllegalArgumentException("cannot remove " + k + " of " + size + " items");
+        truncate(size - k);
+    }
+
+    // Remove any item: restore the checkpoint below it and replay the items after it
+    public void remove(int index) {
+        if (index < 0 || index >= size) throw new IllegalArgumentException("no item " + index);
+        long[] v = Arrays.copyOfRange(val, index + 1, size);
+        int[] w = Arrays.copyOfRange(wt, index + 1, size);
+        truncate(index);
+        for (int i = 0; i < v.length; i++)
+            add(v[i], w[i]);
+    }
+
+    // Keep only the first n items
+    void truncate(int n) {
+        while (!saved.isEmpty() && saved.get(saved.size() - 1).size > n)
+            saved.remove(saved.size() - 1);
+        int from = 0;
+        if (saved.isEmpty()) {
+            Arrays.fill(dp, 0);
+        } else {
+            Checkpoint c = saved.get(saved.size() - 1);
+            System.arraycopy(c.row, 0, dp, 0, Wmax + 1);
+            from = c.size;
+        }
+        for (int i = from; i < n; i++) {
+            if (wt[i] <= Wmax) rollingknapsack.relax01(dp, Wmax, val[i], wt[i]);
+        }
+        size = n;
+    }
+
+    /*
+     * Demo: random add / remove sequences checked against rollingknapsack
+     * (with budgets of 1-4 checkpoints), the checkpoints kept over a long
+     * run of adds, then a planner session: 300 capacities over the same items (one table
+     * per capacity vs one row), and what-if rounds of "add 5, ask, undo"
+     * without and with a mark.
+     */
+    public static void main(String[] args) {
+        Random rnd = new Random(24);
+        for (int t = 0; t < 100; t++) {
+            int Wmax = 1 + rnd.nextInt(400);
+            incrementalknapsack s = new incrementalknapsack(Wmax, 1 + rnd.nextInt(6), 1 + rnd.nextInt(4));
+            for (int step = 0; step < 60; step++) {
+                int op = rnd.nextInt(10);
+                if (op < 6) s.add(rnd.nextInt(100), 1 + rnd.nextInt(80));
+                else if (op < 8) s.removeLast(rnd.nextInt(Math.min(4, s.size()) + 1));
+                else if (s.size() > 0) s.remove(rnd.nextInt(s.size()));
+                int c = rnd.nextInt(Wmax + 1);
+                long expected = rollingknapsack.maxProfit(Arrays.copyOf(s.val, s.size),
+                        Arrays.copyOf(s.wt, s.size), c);
+                if (s.maxProfit(c) != expected)
+                    throw new IllegalStateException("wrong answer in sequence " + t + ", step " + step);
+                if (s.saved.size() > s.maxCheckpoints)
+                    throw new IllegalStateException("checkpoint budget exceeded in sequence " + t);
+            }
+        }
+
+        incrementalknapsack longRun = new incrementalknapsack(1000);
+        for (int i = 0; i < 100_000; i++)
+            longRun.add(1 + rnd.nextInt(100), 1 + rnd.nextInt(100));
+        System.out.printf("%d adds: %d checkpoints kept (budget %d), one every %d items%n", longRun.size(),
+                longRun.saved.size(), longRun.maxCheckpoints, longRun.spacing);
+
+        int n = 300, Wmax = 100_000;
+        int[] vi = new int[n], wi = new int[n];
+        incrementalknapsack s = new incrementalknapsack(Wmax);
+        for (int i = 0; i < n; i++) {
+            wi[i] = 1 + rnd.nextInt(Wmax / 20);
+            vi[i] = wi[i] + rnd.nextInt(1000);
+        }
+        int[] caps = new int[300];
+        for (int i = 0; i < caps.length; i++)
+            caps[i] = rnd.nextInt(Wmax + 1);
+
+        long t0 = System.nanoTime();
+        for (int i = 0; i < n; i++)
+            s.add(vi[i], wi[i]);
+        long[] answers = s.maxProfit(caps);
+        long t1 = System.nanoTime();
+        int sample = 5;         // the full table per capacity is too slow to run 300 times
+        for (int i = 0; i < sample; i++) {
+            if (zerooneknapsack.knapsack(vi, wi, caps[i], n) != answers[i])
+                throw new IllegalStateException("row disagrees with the table at capacity " + caps[i]);
+        }
+        long t2 = System.nanoTime();
+        System.out.printf("n=%d, %d capacities <= %d: one row %.1f ms, table per capacity %.1f ms "
+                        + "(measured on %d, scaled)%n", n, caps.length, Wmax, (t1 - t0) / 1e6,
+                (t2 - t1) / 1e6 * caps.length / sample, sample);
+
+        long[] vl = new long[n];
+        for (int i = 0; i < n; i++)
+            vl[i] = vi[i];
+        t0 = System.nanoTime();
+        rollingknapsack.maxProfit(vl, wi, Wmax);
+        long rebuild = System.nanoTime() - t0;      // what each round costs without the solver
+
+        int rounds = 1000;
+        for (int marked = 0; marked < 2; marked++) {
+            if (marked == 1) s.mark();
+            long sum = 0;
+            t0 = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                for (int k = 0; k < 5; k++)
+                    s.add(1 + rnd.nextInt(5000), 1 + rnd.nextInt(Wmax / 20));
+                sum += s.maxProfit(caps[r % caps.length]);
+                s.removeLast(5);
+            }
+            t1 = System.nanoTime();
+            if (s.size() != n || s.maxProfit(caps[0]) != answers[0]) throw new IllegalStateException("undo left the row changed");
+            System.out.printf("what-if (add 5 items, query, remove them), %s: %.1f us per round "
+                            + "(full rebuild %.1f us; checksum %d)%n", marked == 1 ? "after mark()" : "no mark",
+                    (t1 - t0) / 1e3 / rounds, rebuild / 1e3, sum);
+        }
+    }
+}
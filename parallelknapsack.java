@@ -0,0 +1,184 @@
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+ * ------------------ PARALLEL, BRANCH-FREE 0/1 KNAPSACK ROW FILL ------------------
+ * In zerooneknapsack.knapsack every cell of row i depends only on row i-1,
+ * but the j loop runs serially, branches on w <= j and goes through int[][]
+ * row objects. Here one item is one pass over two flat long rows:
+ *
+ *     next[j] = prev[j]                           j <  w   (one arraycopy)
+ *     next[j] = max(prev[j], prev[j - w] + v)     j >= w   (no branch)
+ *
+ * No cell of next reads another cell of next, so the capacity range is cut
+ * into CHUNK-sized pieces that fill in parallel on a ForkJoinPool; the rows
+ * then swap. The straight max loop over two arrays is the shape the JIT
+ * turns into SIMD code where the CPU has it.
+ *
+ * Where jdk.incubator.vector is available the chunks are filled by
+ * vector/parallelknapsackvector.java instead (explicit LongVector max, built
+ * and run with --add-modules jdk.incubator.vector, see that file). It is
+ * looked up by name at class initialization, so the default build neither
+ * needs the module nor changes; without it fillChunk is the fallback.
+ * -Dparallelknapsack.scalar=true forces the fallback.
+ *
+ * The second row costs an extra write stream: on one thread the in-place
+ * row of rollingknapsack is faster, so a pool of parallelism 1 (or a row
+ * shorter than one chunk) goes there instead.
+ *
+ * Memory: two rows, 16 (W + 1) bytes.
+ */
+public class parallelknapsack {
+
+    // Capacities filled by one task
+    static final int CHUNK = 1 << 16;
+
+    // next[from, to) = prev after adding item (v, w)
+    interface ChunkFill {
+        void fill(long[] prev, long[] next, long v, int w, int from, int to);
+    }
+
+    static final ChunkFill SCALAR = new ChunkFill() {
+        @Override
+        public void fill(long[] prev, long[] next, long v, int w, int from, int to) {
+            fillChunk(prev, next, v, w, from, to);
+        }
+
+        @Override
+        public String toString() {
+            return "scalar";
+        }
+    };
+
+    // The vector fill when its class and module are present, else SCALAR
+    static final ChunkFill FILL = chunkFill();
+
+    static ChunkFill chunkFill() {
+        if (Boolean.getBoolean("parallelknapsack.scalar")) return SCALAR;
+        try {
+            return (ChunkFill) Class.forName("parallelknapsackvector").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return SCALAR;          // class not built, or jdk.incubator.vector not added at run time
+        }
+    }
+
+    static void fillChunk(long[] prev, long[] next, long v, int w, int from, int to) {
+        int split = Math.min(Math.max(from, w), to);
+        System.arraycopy(prev, from, next, from, split - from);     // the item does not fit here
+        for (int j = split; j < to; j++)
+            next[j] = Math.max(prev[j], prev[j - w] + v);
+    }
+
+    static final class RowTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final ChunkFill fill;
+        final long[] prev, next;
+        final long v;
+        final int w, from, to;
+
+        RowTask(ChunkFill fill, long[] prev, long[] next, long v, int w, int from, int to) {
+            this.fill = fill;
+            this.prev = prev;
+            this.next = next;
+            this.v = v;
+            this.w = w;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK) {
+                fill.fill(prev, next, v, w, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RowTask(fill, prev, next, v, w, from, mid), new RowTask(fill, prev, next, v, w, mid, to));
+        }
+    }
+
+    public static long maxProfit(long[] val, int[] wt, int W) {
+        return maxProfit(val, wt, W, ForkJoinPool.commonPool());
+    }
+
+    public static long maxProfit(long[] val, int[] wt, int W, ForkJoinPool pool) {
+        rollingknapsack.check(val, wt, W);
+        if (pool.getParallelism() == 1 || W + 1 <= CHUNK) return rollingknapsack.maxProfit(val, wt, W);
+        return twoRows(val, wt, W, pool, FILL);
+    }
+
+    static long twoRows(long[] val, int[] wt, int W, ForkJoinPool pool, ChunkFill fill) {
+        long[] prev = new long[W + 1], next = new long[W + 1];
+        for (int i = 0; i < val.length; i++) {
+            if (wt[i] > W) continue;
+            pool.invoke(new RowTask(fill, prev, next, val[i], wt[i], 0, W + 1));
+            long[] t = prev;
+            prev = next;
+            next = t;
+        }
+        return prev[W];
+    }
+
+    /*
+     * java -Xmx4g parallelknapsack [W ...]   (default 10^6 10^7; 10^8 needs ~1.6 GB of rows)
+     * n is chosen so that n * W = 2 * 10^9 cells. Columns: the in-place row of
+     * rollingknapsack, then the two-row fill on 1, 2, 4, ... threads, scalar
+     * and (when available, see the class comment) with the Vector API.
+     */
+    public static void main(String[] args) {
+        int[] sizes = {1_000_000, 10_000_000};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++)
+                sizes[i] = Integer.parseInt(args[i]);
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        Random rnd = new Random(21);
+
+        int[] tw = new int[300];
+        long[] tv = new long[300];
+        for (int i = 0; i < tw.length; i++) {
+            tw[i] = 1 + rnd.nextInt(2_000);
+            tv[i] = rnd.nextInt(1 << 20);
+        }
+        ForkJoinPool one = new ForkJoinPool(1);
+        ChunkFill[] fills = FILL == SCALAR ? new ChunkFill[]{SCALAR} : new ChunkFill[]{SCALAR, FILL};
+        for (ChunkFill fill : fills) {
+            if (twoRows(tv, tw, 200_000, one, fill) != rollingknapsack.maxProfit(tv, tw, 200_000))
+                throw new IllegalStateException(fill + " fill disagrees with the rolling row");
+        }
+        System.out.println("chunk fill: " + FILL + ", " + cores + " core(s)");
+
+        for (int W : sizes) {
+            int n = (int) Math.max(4, 2_000_000_000L / W);
+            long[] val = new long[n];
+            int[] wt = new int[n];
+            for (int i = 0; i < n; i++) {
+                wt[i] = 1 + rnd.nextInt(Math.max(1, W / 10));
+                val[i] = wt[i] + rnd.nextInt(1 << 20);
+            }
+            StringBuilder line = new StringBuilder(String.format("W=%,d n=%d:", W, n));
+            long t0 = System.nanoTime();
+            long expected = rollingknapsack.maxProfit(val, wt, W);
+            double base = (System.nanoTime() - t0) / 1e9;
+            line.append(String.format(" rolling %.2f s (%.0f Mcells/s) |", base, (double) n * W / base / 1e6));
+            for (int p = 1; p <= cores; p *= 2) {
+                ForkJoinPool pool = new ForkJoinPool(p);
+                for (ChunkFill fill : fills) {
+                    t0 = System.nanoTime();
+                    long got = twoRows(val, wt, W, pool, fill);
+                    double s = (System.nanoTime() - t0) / 1e9;
+                    if (got != expected) throw new IllegalStateException("wrong profit at W=" + W);
+                    line.append(String.format(" %d thr %s %.2f s (%.2fx)", p, fill == SCALAR ? "scalar" : "vector",
+                            s, base / s));
+                }
+                pool.shutdown();
+            }
+            System.out.println(line);
+        }
+        one.shutdown();
+        if (cores == 1) System.out.println("(only 1 core available: maxProfit would use the rolling row here)");
+    }
+}
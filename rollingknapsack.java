@@ -0,0 +1,163 @@
+import java.util.Random;
+
+/*
+ * ------------------ 0/1 KNAPSACK IN O(W) MEMORY, WITH THE CHOSEN ITEMS ------------------
+ * zerooneknapsack.knapsack keeps the whole (n+1) x (W+1) int table only to
+ * return dp[n][W]: at n = 10^4, W = 10^6 that is 40 GB, and int profits
+ * overflow. Here:
+ *
+ *   1. Rolling row: row i only needs row i-1, so one long[W+1] is enough if
+ *      capacities are walked from W down to w (dp[j-w] is then still the
+ *      value of row i-1). dp[j] = best profit with weight <= j.
+ *
+ *          relax01(dp, W, v, w):  for j = W .. w:  dp[j] = max(dp[j], dp[j-w] + v)
+ *
+ *      relax01 is the shared core the other knapsack engines build on.
+ *
+ *   2. Which items? (Hirschberg's divide and conquer, on the items)
+ *      split the items into halves A | B, compute the row of A forwards
+ *      and the row of B, then the best split of the capacity is
+ *
+ *          c* = argmax over c of  rowA[c] + rowB[C - c]
+ *
+ *      and A gets c*, B gets C - c*. Recurse until single items.
+ *      Every level of the recursion costs at most n * W in total, the two
+ *      rows are reused, so: time O(n W), memory O(W + n).
+ */
+public class rollingknapsack {
+
+    // ---------------------------------------------------------------- core
+
+    // Add one 0/1 item to the row dp[0..W] (capacities W down to w, so it is used at most once)
+    static void relax01(long[] dp, int W, long v, int w) {
+        for (int j = W; j >= w; j--) {
+            long take = dp[j - w] + v;
+            if (take > dp[j]) dp[j] = take;
+        }
+    }
+
+    // Best profit for items [from, to) at every capacity 0..C, written into row
+    static void row(long[] val, int[] wt, int from, int to, int C, long[] row) {
+        java.util.Arrays.fill(row, 0, C + 1, 0);
+        for (int i = from; i < to; i++) {
+            if (wt[i] <= C) relax01(row, C, val[i], wt[i]);
+        }
+    }
+
+    static void check(long[] val, int[] wt, int W) {
+        if (val.length != wt.length) throw new IllegalArgumentException("val and wt differ in length");
+        if (W < 0) throw new IllegalArgumentException("capacity must be >= 0");
+        for (int w : wt) {
+            if (w < 0) throw new IllegalArgumentException("weights must be >= 0");
+        }
+    }
+
+    // ---------------------------------------------------------------- API
+
+    public static long maxProfit(long[] val, int[] wt, int W) {
+        check(val, wt, W);
+        long[] dp = new long[W + 1];
+        row(val, wt, 0, val.length, W, dp);
+        return dp[W];
+    }
+
+    // Same arguments as zerooneknapsack.knapsack, long result, O(W) memory
+    public static long knapsack(int val[], int wt[], int W, int n) {
+        long[] v = new long[n];
+        for (int i = 0; i < n; i++)
+            v[i] = val[i];
+        return maxProfit(v, java.util.Arrays.copyOf(wt, n), W);
+    }
+
+    // Indices (ascending) of an optimal set of items
+    public static int[] chooseItems(long[] val, int[] wt, int W) {
+        check(val, wt, W);
+        int n = val.length;
+        boolean[] taken = new boolean[n];
+        if (n > 0) choose(val, wt, 0, n, W, new long[W + 1], new long[W + 1], taken);
+        int count = 0;
+        for (boolean t : taken) {
+            if (t) count++;
+        }
+        int[] items = new int[count];
+        for (int i = 0, k = 0; i < n; i++) {
+            if (taken[i]) items[k++] = i;
+        }
+        return items;
+    }
+
+    // Mark an optimal subset of items [from, to) for capacity C; a and b are scratch rows
+    private static void choose(long[] val, int[] wt, int from, int to, int C, long[] a, long[] b, boolean[] taken) {
+        if (to - from == 1) {
+            taken[from] = wt[from] <= C && val[from] > 0;
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        row(val, wt, from, mid, C, a);
+        row(val, wt, mid, to, C, b);
+        int split = 0;
+        long best = Long.MIN_VALUE;
+        for (int c = 0; c <= C; c++) {
+            long p = a[c] + b[C - c];
+            if (p > best) {
+                best = p;
+                split = c;
+            }
+        }
+        choose(val, wt, from, mid, split, a, b, taken);       // the rows are not needed any more
+        choose(val, wt, mid, to, C - split, a, b, taken);
+    }
+
+    /*
+     * Demo: zerooneknapsack's example with the chosen items, random checks
+     * against the table, then a size the table cannot handle.
+     */
+    public static void main(String[] args) {
+        int[] val = {15, 14, 10, 45, 30};
+        int[] wt = {2, 5, 1, 3, 4};
+        long[] v = {15, 14, 10, 45, 30};
+        System.out.println("Maximum Profit: " + knapsack(val, wt, 7, val.length)
+                + ", items " + java.util.Arrays.toString(chooseItems(v, wt, 7)));
+
+        Random rnd = new Random(11);
+        for (int t = 0; t < 300; t++) {
+            int n = 1 + rnd.nextInt(30), W = rnd.nextInt(200);
+            int[] vi = new int[n], wi = new int[n];
+            long[] vl = new long[n];
+            for (int i = 0; i < n; i++) {
+                vi[i] = rnd.nextInt(100);
+                vl[i] = vi[i];
+                wi[i] = 1 + rnd.nextInt(60);       // the table never fills column 0, so no weight-0 items
+            }
+            int[] pick = chooseItems(vl, wi, W);
+            long profit = 0, weight = 0;
+            for (int i : pick) {
+                profit += vl[i];
+                weight += wi[i];
+            }
+            if (profit != zerooneknapsack.knapsack(vi, wi, W, n) || weight > W)
+                throw new IllegalStateException("wrong answer on random instance " + t);
+        }
+
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int W = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        long[] big = new long[n];
+        int[] bw = new int[n];
+        for (int i = 0; i < n; i++) {
+            bw[i] = 1 + rnd.nextInt(W / 50);
+            big[i] = bw[i] + rnd.nextInt(1 << 30) + (1L << 32);     // needs more than 32 bits in total
+        }
+        long t0 = System.nanoTime();
+        long best = maxProfit(big, bw, W);
+        long t1 = System.nanoTime();
+        int[] pick = chooseItems(big, bw, W);
+        long t2 = System.nanoTime();
+        long profit = 0;
+        for (int i : pick) profit += big[i];
+        if (profit != best) throw new IllegalStateException("reconstruction does not reach the optimum");
+        System.out.printf("n=%d W=%d: profit %d, %d items; value %.1f ms, items %.1f ms, "
+                        + "%.1f MB of rows (the full int table would need %.1f GB)%n",
+                n, W, best, pick.length, (t1 - t0) / 1e6, (t2 - t1) / 1e6,
+                2.0 * 8 * (W + 1) / (1 << 20), 4.0 * (n + 1) * (W + 1) / (1 << 30));
+    }
+}
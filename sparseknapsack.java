@@ -0,0 +1,353 @@
+import java.util.Random;
+
+/*
+ * ------------------ SPARSE / MEET-IN-THE-MIDDLE 0/1 KNAPSACK FOR HUGE W ------------------
+ * With W in the billions (bytes, cents) neither zerooneknapsack's table nor
+ * one rolling row can be allocated. But most capacities are never reached
+ * by any subset, and most reachable ones are useless:
+ *
+ *   Pareto frontier: the (weight, profit) pairs of subsets such that no other
+ *   subset is lighter-or-equal and more profitable. Kept sorted by weight,
+ *   profits are then strictly increasing. Adding item (v, w):
+ *
+ *       F' = merge(F, F + (w, v))     drop pairs heavier than W, drop every
+ *                                     pair whose profit is not above the
+ *                                     previous one (dominated)
+ *
+ *   one linear merge per item, memory = the frontier, independent of W.
+ *   On correlated data (profit close to weight) nearly every subset is
+ *   Pareto-optimal and the frontier explodes, so frontierProfit() takes the
+ *   items in decreasing v/w order and after each merge drops every pair that
+ *   cannot beat the best greedy completion seen so far:
+ *
+ *       upper(w, p) = p + fractional fill of the remaining items into W - w
+ *       lower(w, p) = p + the whole remaining items that fit, in ratio order
+ *
+ *   both from prefix sums over the sorted items; the pairs come in weight
+ *   order, so the split item only moves one way: O(size + n) per merge. The
+ *   ratio order and the fraction are computed exactly (128-bit products), a
+ *   rounded bound could drop the optimal pair. If the prefix sums do not fit
+ *   in a long, pruning is skipped.
+ *
+ *   Meet in the middle (small n): frontier of each half separately (at most
+ *   2^(n/2) pairs each), then for every pair of the first half the best
+ *   partner of the second is the heaviest one still fitting: two pointers.
+ *
+ *   solve() dispatches:
+ *     - no item with a positive weight fits: the zero-weight items are the answer
+ *     - divide all weights and W by the gcd of the weights (prices in cents
+ *       of whole dollars shrink W 100x); if n * W' is small enough, the dense
+ *       rolling row of rollingknapsack / parallelknapsack
+ *     - else n <= MITM_MAX_N: meet in the middle
+ *     - else the sparse frontier
+ */
+public class sparseknapsack {
+
+    // Dense DP when the scaled capacity row fits in this many cells ...
+    static final long DENSE_MAX_W = 1L << 25;
+    // ... and the whole fill is at most this many cell updates
+    static final long DENSE_MAX_CELLS = 20_000_000_000L;
+
+    static final int MITM_MAX_N = 40;
+
+    enum Engine { DENSE, MEET_IN_THE_MIDDLE, FRONTIER }
+
+    // Non-dominated (weight, profit) pairs, weights and profits strictly increasing
+    static final class Frontier {
+        long[] w, p;
+        long[] upper;       // scratch for prune(), same capacity as w and p
+        int size;
+
+        Frontier(int capacity) {
+            w = new long[capacity];
+            p = new long[capacity];
+            upper = new long[capacity];
+        }
+
+        // The frontier of the empty set
+        static Frontier empty() {
+            Frontier f = new Frontier(16);
+            f.size = 1;
+            return f;
+        }
+
+        long best() {
+            return p[size - 1];
+        }
+    }
+
+    // merge(f, f + (wt, v)) restricted to weight <= W, written to out (grown if needed)
+    static Frontier addItem(Frontier f, long v, long wt, long W, Frontier out) {
+        if (out.w.length < 2 * f.size) {
+            out.w = new long[2 * f.size];
+            out.p = new long[2 * f.size];
+            out.upper = new long[2 * f.size];
+        }
+        long[] ow = out.w, op = out.p;
+        int n = 0, i = 0, j = 0;
+        long lastP = -1;
+        while (i < f.size || j < f.size) {
+            long wi = i < f.size ? f.w[i] : Long.MAX_VALUE;
+            long wj = j < f.size && f.w[j] <= W - wt ? f.w[j] + wt : Long.MAX_VALUE;
+            if (wi == Long.MAX_VALUE && wj == Long.MAX_VALUE) break;
+            long w, p;
+            if (wi < wj || (wi == wj && f.p[i] >= f.p[j] + v)) {
+                w = wi;
+                p = f.p[i++];
+                if (wi == wj) j++;
+            } else {
+                w = wj;
+                p = f.p[j++] + v;
+                if (wi == wj) i++;
+            }
+            if (p > lastP) {
+                if (n > 0 && ow[n - 1] == w) n--;       // same weight, more profit: replace
+                ow[n] = w;
+                op[n] = p;
+                n++;
+                lastP = p;
+            }
+        }
+        out.size = n;
+        return out;
+    }
+
+    // Frontier of items [from, to) for capacity W
+    static Frontier frontier(long[] val, long[] wt, int from, int to, long W) {
+        Frontier cur = Frontier.empty(), spare = new Frontier(16);
+        for (int i = from; i < to; i++) {
+            if (wt[i] > W || val[i] <= 0) continue;
+            Frontier next = addItem(cur, val[i], wt[i], W, spare);
+            spare = cur;
+            cur = next;
+        }
+        return cur;
+    }
+
+    // Prefix sums saturate here: n weights of up to W each may not fit in a long
+    static final long SATURATED = Long.MAX_VALUE / 4;
+
+    public static long frontierProfit(long[] val, long[] wt, long W) {
+        int n = 0;
+        Integer[] order = new Integer[val.length];
+        for (int i = 0; i < val.length; i++) {
+            if (wt[i] <= W && val[i] > 0) order[n++] = i;
+        }
+        // Decreasing v / w: v[b] w[a] against v[a] w[b] as exact 128-bit products (zero weights first)
+        java.util.Arrays.sort(order, 0, n, (a, b) -> compareProducts(val[b], wt[a], val[a], wt[b]));
+        long[] v = new long[n], w = new long[n], sumW = new long[n + 1], sumV = new long[n + 1];
+        boolean saturated = false;
+        for (int k = 0; k < n; k++) {
+            v[k] = val[order[k]];
+            w[k] = wt[order[k]];
+            sumW[k + 1] = Math.min(SATURATED, sumW[k] + w[k]);
+            sumV[k + 1] = Math.min(SATURATED, sumV[k] + v[k]);
+            saturated |= sumW[k + 1] == SATURATED || sumV[k + 1] == SATURATED;
+        }
+        Frontier cur = Frontier.empty(), spare = new Frontier(16);
+        long best = 0;
+        for (int k = 0; k < n; k++) {
+            Frontier next = addItem(cur, v[k], w[k], W, spare);
+            spare = cur;
+            cur = next;
+            if (!saturated) best = prune(cur, k + 1, v, w, sumW, sumV, W, best);
+            if (cur.size == 0) return best;         // no pair can beat best any more
+        }
+        return Math.max(best, cur.best());
+    }
+
+    // Sign of a * b - c * d for a, b, c, d >= 0, without overflow
+    static int compareProducts(long a, long b, long c, long d) {
+        long hi1 = Math.multiplyHigh(a, b), hi2 = Math.multiplyHigh(c, d);
+        if (hi1 != hi2) return Long.compare(hi1, hi2);
+        return Long.compareUnsigned(a * b, c * d);
+    }
+
+    // floor(x * y / z) for 0 <= x < z and y >= 0: at most y, but x * y may need 128 bits
+    static long mulDiv(long x, long y, long z) {
+        if (Math.multiplyHigh(x, y) == 0 && x * y >= 0) return x * y / z;
+        return java.math.BigInteger.valueOf(x).multiply(java.math.BigInteger.valueOf(y))
+                .divide(java.math.BigInteger.valueOf(z)).longValue();
+    }
+
+    /*
+     * Drop the pairs of f whose bound over the items [from, n) does not exceed
+     * the best greedy completion; returns the new best. Profits are integers,
+     * so the floored fractional bound is still a bound: a pair is only dropped
+     * when no completion of it beats a profit the caller already holds.
+     */
+    static long prune(Frontier f, int from, long[] v, long[] w, long[] sumW, long[] sumV, long W, long best) {
+        int n = v.length, kept = 0;
+        long[] upper = f.upper;
+        int t = n;          // last t with sumW[t] - sumW[from] <= room: items [from, t) fit whole
+        for (int i = 0; i < f.size; i++) {
+            long room = W - f.w[i];         // shrinks as i grows, so t only moves down
+            while (sumW[t] - sumW[from] > room) t--;
+            long lower = f.p[i] + sumV[t] - sumV[from];
+            upper[i] = lower;
+            if (t < n) upper[i] += mulDiv(room - (sumW[t] - sumW[from]), v[t], w[t]);
+            best = Math.max(best, lower);
+        }
+        for (int i = 0; i < f.size; i++) {
+            if (upper[i] <= best) continue;         // cannot beat best, which is returned anyway
+            f.w[kept] = f.w[i];
+            f.p[kept] = f.p[i];
+            kept++;
+        }
+        f.size = kept;
+        return best;
+    }
+
+    public static long meetInTheMiddle(long[] val, long[] wt, long W) {
+        int mid = val.length / 2;
+        Frontier a = frontier(val, wt, 0, mid, W), b = frontier(val, wt, mid, val.length, W);
+        long best = 0;
+        int j = b.size - 1;
+        for (int i = 0; i < a.size; i++) {         // a's weights go up, so b's partner only moves down
+            while (j >= 0 && b.w[j] > W - a.w[i]) j--;
+            if (j < 0) break;
+            best = Math.max(best, a.p[i] + b.p[j]);
+        }
+        return best;
+    }
+
+    // ---------------------------------------------------------------- dispatcher
+
+    static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    // gcd of the weights that fit (0 when none does)
+    static long weightGcd(long[] wt, long W) {
+        long g = 0;
+        for (long w : wt) {
+            if (w <= W) g = gcd(g, w);
+        }
+        return g;
+    }
+
+    static Engine plan(long[] val, long[] wt, long W) {
+        long g = weightGcd(wt, W);
+        return g == 0 ? Engine.DENSE : plan(val.length, W / g);
+    }
+
+    // n items, capacity W' after dividing by the weight gcd
+    static Engine plan(int n, long scaledW) {
+        if (scaledW <= DENSE_MAX_W && (double) n * (scaledW + 1) <= DENSE_MAX_CELLS) return Engine.DENSE;
+        return n <= MITM_MAX_N ? Engine.MEET_IN_THE_MIDDLE : Engine.FRONTIER;
+    }
+
+    public static long solve(long[] val, long[] wt, long W) {
+        if (val.length != wt.length) throw new IllegalArgumentException("val and wt differ in length");
+        if (W < 0) throw new IllegalArgumentException("capacity must be >= 0");
+        for (long w : wt) {
+            if (w < 0) throw new IllegalArgumentException("weights must be >= 0");
+        }
+        long g = weightGcd(wt, W);
+        if (g == 0) {           // every item that fits weighs nothing
+            long sum = 0;
+            for (int i = 0; i < val.length; i++) {
+                if (wt[i] == 0 && val[i] > 0) sum += val[i];
+            }
+            return sum;
+        }
+        long scaledW = W / g;
+        switch (plan(val.length, scaledW)) {
+            case DENSE:
+                int cap = (int) scaledW;            // plan() checked scaledW <= DENSE_MAX_W
+                long[] v = new long[val.length];
+                int[] w = new int[val.length];
+                int k = 0;
+                for (int i = 0; i < val.length; i++) {
+                    if (wt[i] > W) continue;
+                    v[k] = val[i];
+                    w[k++] = (int) (wt[i] / g);
+                }
+                return parallelknapsack.maxProfit(java.util.Arrays.copyOf(v, k), java.util.Arrays.copyOf(w, k), cap);
+            case MEET_IN_THE_MIDDLE:
+                return meetInTheMiddle(val, wt, W);
+            default:
+                return frontierProfit(val, wt, W);
+        }
+    }
+
+    /*
+     * Demo: random checks against the dense row, then one instance per engine:
+     *   weights in whole dollars, W in cents -> gcd scaling, dense
+     *   36 items, W ~ 10^12                 -> meet in the middle
+     *   1000 items, W ~ 5 * 10^9, profit ~ weight -> frontier (with pruning)
+     */
+    public static void main(String[] args) {
+        Random rnd = new Random(22);
+        for (int t = 0; t < 300; t++) {
+            int n = 1 + rnd.nextInt(24), W = rnd.nextInt(3000);
+            long[] v = new long[n], w = new long[n];
+            int[] wi = new int[n];
+            for (int i = 0; i < n; i++) {
+                wi[i] = rnd.nextInt(600);
+                w[i] = wi[i];
+                v[i] = t % 2 == 0 ? rnd.nextInt(1000) : wi[i] + rnd.nextInt(20);     // odd t: correlated
+            }
+            long expected = rollingknapsack.maxProfit(v, wi, W);
+            if (frontierProfit(v, w, W) != expected || meetInTheMiddle(v, w, W) != expected || solve(v, w, W) != expected)
+                throw new IllegalStateException("wrong answer on random instance " + t);
+        }
+        // Huge W: nothing fits, only zero weights fit, a single item heavier than a huge W
+        if (solve(new long[]{5}, new long[]{4_000_000_000L}, 3_000_000_000L) != 0
+                || solve(new long[]{5, 7}, new long[]{0, 0}, 3_000_000_000L) != 12
+                || solve(new long[]{5}, new long[]{9_000_000_000L}, 5_000_000_000L) != 0
+                || solve(new long[]{5, 7, 3}, new long[]{0, 4_000_000_000L, 0}, 3_000_000_000L) != 8)
+            throw new IllegalStateException("wrong answer on a huge capacity with nothing to place");
+        // Profits near 2^54, weights near 2^40: the pruned frontier against the unpruned halves
+        for (int t = 0; t < 300; t++) {
+            int n = 1 + rnd.nextInt(22);
+            long[] v = new long[n], w = new long[n];
+            for (int i = 0; i < n; i++) {
+                w[i] = 1 + (rnd.nextLong() >>> 24);
+                v[i] = t % 2 == 0 ? rnd.nextLong() >>> 9 : (w[i] << 14) + rnd.nextInt(3);     // odd t: near-equal ratios
+            }
+            long W = (rnd.nextLong() >>> 24) * (1 + rnd.nextInt(n));
+            if (frontierProfit(v, w, W) != meetInTheMiddle(v, w, W) || solve(v, w, W) != meetInTheMiddle(v, w, W))
+                throw new IllegalStateException("wrong answer on large-profit instance " + t);
+        }
+
+        long[] caps = new long[3];
+        String[] names = {"cents, whole-dollar weights", "36 items, W ~ 10^12", "1000 items, W ~ 5 * 10^9"};
+
+        int n0 = 500;
+        long[] v0 = new long[n0], w0 = new long[n0];
+        for (int i = 0; i < n0; i++) {
+            w0[i] = 100L * (1 + rnd.nextInt(1_000_000));
+            v0[i] = rnd.nextInt(1 << 30);
+        }
+        int n1 = 36;
+        long[] v1 = new long[n1], w1 = new long[n1];
+        for (int i = 0; i < n1; i++) {
+            w1[i] = 1 + (rnd.nextLong() >>> 1) % 100_000_000_000L;
+            v1[i] = rnd.nextInt(1 << 30);
+        }
+        int n2 = 1000;
+        long[] v2 = new long[n2], w2 = new long[n2];
+        for (int i = 0; i < n2; i++) {
+            w2[i] = 1 + (rnd.nextLong() >>> 1) % 100_000_000L;
+            v2[i] = w2[i] + rnd.nextInt(1000);      // profit close to weight: a hard, correlated instance
+        }
+        long[][] vals = {v0, v1, v2}, wts = {w0, w1, w2};
+        caps[0] = 5_000_000L * 100;
+        caps[1] = 600_000_000_000L;
+        caps[2] = 5_000_000_000L;
+        for (int k = 0; k < 3; k++) {
+            long t0 = System.nanoTime();
+            Engine e = plan(vals[k], wts[k], caps[k]);
+            long best = solve(vals[k], wts[k], caps[k]);
+            long t1 = System.nanoTime();
+            System.out.printf("%-28s W=%,d: %-18s profit %d in %.1f ms%n",
+                    names[k], caps[k], e, best, (t1 - t0) / 1e6);
+        }
+    }
+}
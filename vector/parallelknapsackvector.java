@@ -0,0 +1,43 @@
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/*
+ * ------------------ SIMD ROW FILL FOR parallelknapsack (OPTIONAL) ------------------
+ * The same chunk fill as parallelknapsack.fillChunk, written with the
+ * incubating Vector API: one LongVector max over prev[j..] and prev[j-w..] + v
+ * per step, a scalar loop for the tail.
+ *
+ * jdk.incubator.vector is not resolved by default, so this file lives apart
+ * from the rest of the tree and is built and run with the module added:
+ *
+ *     javac -d out *.java
+ *     javac --add-modules jdk.incubator.vector -cp out -d out vector/parallelknapsackvector.java
+ *     java  --add-modules jdk.incubator.vector -cp out parallelknapsack
+ *
+ * parallelknapsack looks the class up by name; without it (or without the
+ * module at run time) the scalar fillChunk is used.
+ */
+public class parallelknapsackvector implements parallelknapsack.ChunkFill {
+
+    // Touching the species here makes a missing module fail at class initialization, not mid-fill
+    static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    @Override
+    public void fill(long[] prev, long[] next, long v, int w, int from, int to) {
+        int split = Math.min(Math.max(from, w), to);
+        System.arraycopy(prev, from, next, from, split - from);     // the item does not fit here
+        int j = split;
+        for (int end = split + SPECIES.loopBound(to - split); j < end; j += SPECIES.length()) {
+            LongVector keep = LongVector.fromArray(SPECIES, prev, j);
+            LongVector take = LongVector.fromArray(SPECIES, prev, j - w).add(v);
+            keep.max(take).intoArray(next, j);
+        }
+        for (; j < to; j++)
+            next[j] = Math.max(prev[j], prev[j - w] + v);
+    }
+
+    @Override
+    public String toString() {
+        return "Vector API, " + SPECIES.length() + " longs per step";
+    }
+}